@@ -0,0 +1,245 @@
+package com.wonkyfingers.simon;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Level;
+
+/**
+ * One running game: its own clock, zone, task rotation and participants.
+ */
+public class Arena {
+    private final Simon plugin;
+    private final String id;
+    private final GameClock clock;
+    private final Game_Setup gameSetup;
+    private final TaskManager taskManager;
+    private final Set<UUID> participants = new HashSet<>();
+    private final ParticipantSlots slots = new ParticipantSlots();
+    private final MotionHistory motion = new MotionHistory();
+    private Player[] online = new Player[16]; // Online participant per slot, null while offline
+    private int staggerIndex;     // Distinct among running arenas
+    private int staggerSlots = 1; // Power of two above every running arena's index
+    private World instanceWorld; // Cloned from a template for this game only, or null
+    private GameRandom random;
+    private ReplayLog replay;    // Decisions of the running game, saved when it stops
+
+    public Arena(Simon plugin, String id) {
+        this.plugin = plugin;
+        this.id = id;
+        this.clock = new GameClock(plugin);
+        this.gameSetup = new Game_Setup(plugin, this);
+        this.taskManager = new TaskManager(plugin, this);
+    }
+
+    public void start(World world, Location center, Collection<? extends Player> players,
+                      int staggerIndex, int staggerSlots) {
+        stop();
+        this.staggerIndex = staggerIndex;
+        this.staggerSlots = staggerSlots;
+        participants.clear();
+        slots.clear();
+        Arrays.fill(online, null);
+        for (Player player : players) {
+            participants.add(player.getUniqueId());
+            setOnline(slots.register(player.getUniqueId()), player);
+        }
+        motion.reset(slots.size());
+
+        // Every random decision of the game comes from this seed
+        long seed = GameRandom.newSeed();
+        random = new GameRandom(seed);
+        replay = new ReplayLog(seed, id, System.currentTimeMillis());
+        plugin.getLogger().info("Arena " + id + " started with seed " + seed);
+
+        gameSetup.startGame(world, center);
+        taskManager.startTasks();
+    }
+
+    public void stop() {
+        gameSetup.stopGame();
+        taskManager.cleanup();
+        participants.clear();
+        saveReplay();
+    }
+
+    // Writes the finished game's replay to plugins/Simon/replays, off the main thread when possible
+    private void saveReplay() {
+        if (replay == null) return;
+        byte[] data = replay.toByteArray();
+        File file = new File(plugin.getDataFolder(), "replays/" + id + "-" + replay.getStartedMillis() + ".simr");
+        replay = null;
+
+        Runnable write = () -> {
+            try {
+                Files.createDirectories(file.getParentFile().toPath());
+                Files.write(file.toPath(), data);
+            } catch (IOException e) {
+                plugin.getLogger().log(Level.WARNING, "Failed to save replay " + file, e);
+            }
+        };
+        // The scheduler refuses new tasks once the plugin is disabling
+        if (plugin.isEnabled()) {
+            Bukkit.getScheduler().runTaskAsynchronously(plugin, write);
+        } else {
+            write.run();
+        }
+    }
+
+    public boolean isRunning() {
+        return gameSetup.isGameRunning();
+    }
+
+    /**
+     * Delay before the first run of a repeating job with the given period. The
+     * phase is the bit-reversed stagger index as a fraction of the period, so
+     * arenas 0..n-1 get distinct residues whenever n is a power of two no larger
+     * than the period: 0, 1/2, 1/4, 3/4, 1/8, ... of the way through it. Past
+     * that, two arenas have to share a tick for this job.
+     */
+    public long getStaggerDelay(long period) {
+        long fraction = Integer.reverse(staggerIndex) & 0xFFFFFFFFL;
+        return clock.getAlignedDelay(period, (fraction * period) >>> 32);
+    }
+
+    public int getStaggerIndex() {
+        return staggerIndex;
+    }
+
+    public int getStaggerSlots() {
+        return staggerSlots;
+    }
+
+    // More arenas are running: stretch the jobs whose period has to fit them all
+    public void setStaggerSlots(int slots) {
+        if (slots == staggerSlots) return;
+        staggerSlots = slots;
+        gameSetup.restagger();
+    }
+
+    public boolean hasParticipant(Player player) {
+        return participants.contains(player.getUniqueId());
+    }
+
+    public void removeParticipant(Player player) {
+        participants.remove(player.getUniqueId());
+        int slot = slots.slotOf(player.getUniqueId());
+        if (slot >= 0) {
+            online[slot] = null;
+        }
+        taskManager.getTaskBar().removePlayer(player);
+    }
+
+    // A participant came back; rejoining makes a new Player object, so it replaces the old one
+    public void playerJoined(Player player) {
+        int slot = slots.slotOf(player.getUniqueId());
+        if (slot < 0) return;
+        setOnline(slot, player);
+        taskManager.getTaskBar().addPlayer(player);
+    }
+
+    public void playerQuit(Player player) {
+        int slot = slots.slotOf(player.getUniqueId());
+        if (slot < 0) return;
+        online[slot] = null;
+        taskManager.getTaskBar().removePlayer(player);
+    }
+
+    private void setOnline(int slot, Player player) {
+        if (slot >= online.length) {
+            online = Arrays.copyOf(online, Math.max(slot + 1, online.length * 2));
+        }
+        online[slot] = player;
+    }
+
+    public Set<UUID> getParticipantIds() {
+        return participants;
+    }
+
+    // Participants who are currently online, in slot order
+    public List<Player> getPlayers() {
+        List<Player> players = new ArrayList<>(participants.size());
+        for (int slot = 0; slot < slots.size(); slot++) {
+            if (online[slot] != null) {
+                players.add(online[slot]);
+            }
+        }
+        return players;
+    }
+
+    /**
+     * Online participant per slot, null where the participant is offline or
+     * left. Valid up to getSlots().size(); callers must not modify it.
+     */
+    public Player[] getOnlineBySlot() {
+        return online;
+    }
+
+    // Dense per-game index of every participant
+    public ParticipantSlots getSlots() {
+        return slots;
+    }
+
+    /**
+     * Adds a movement sample for the participant in the given slot; -1 is ignored.
+     */
+    public void recordMotion(Player player, int slot, Location to) {
+        if (slot < 0) return;
+
+        int flags = 0;
+        if (player.isOnGround()) flags |= MotionHistory.ON_GROUND;
+        if (player.isInWater()) flags |= MotionHistory.IN_WATER;
+        if (player.isGliding()) flags |= MotionHistory.GLIDING;
+        if (player.isSwimming()) flags |= MotionHistory.SWIMMING;
+        motion.record(slot, clock.getTick(), to.getX(), to.getY(), to.getZ(), to.getYaw(), to.getPitch(), flags);
+    }
+
+    public MotionHistory getMotionHistory() {
+        return motion;
+    }
+
+    // Random streams of the running game
+    public GameRandom getRandom() {
+        return random;
+    }
+
+    public ReplayLog getReplay() {
+        return replay;
+    }
+
+    public World getInstanceWorld() {
+        return instanceWorld;
+    }
+
+    public void setInstanceWorld(World instanceWorld) {
+        this.instanceWorld = instanceWorld;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public GameClock getClock() {
+        return clock;
+    }
+
+    public Game_Setup getGameSetup() {
+        return gameSetup;
+    }
+
+    public TaskManager getTaskManager() {
+        return taskManager;
+    }
+}
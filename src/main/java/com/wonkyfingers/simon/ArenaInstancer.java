@@ -0,0 +1,181 @@
+package com.wonkyfingers.simon;
+
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.WorldCreator;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+/**
+ * Clones a prepared template world into a throwaway game world. Copying and
+ * deleting happen off the main thread; only loading and unloading the world
+ * touch the server thread.
+ */
+public class ArenaInstancer {
+    public static final String INSTANCE_PREFIX = "simon_instance_";
+
+    private final JavaPlugin plugin;
+
+    public ArenaInstancer(JavaPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Copies the template asynchronously and loads the copy on the main thread.
+     * Exactly one of the callbacks runs, always on the main thread.
+     */
+    public void createInstance(String template, String instanceName, Consumer<World> onReady, Consumer<String> onError) {
+        Path container = Bukkit.getWorldContainer().toPath();
+        Path source = container.resolve(template);
+        Path target = container.resolve(instanceName);
+
+        if (!Files.isRegularFile(source.resolve("level.dat"))) {
+            onError.accept("Template world '" + template + "' does not exist.");
+            return;
+        }
+        if (Bukkit.getWorld(template) != null) {
+            // A loaded world keeps writing to its region files while we copy
+            onError.accept("Template world '" + template + "' is loaded; unload it first.");
+            return;
+        }
+
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            try {
+                copyWorld(source, target);
+            } catch (IOException e) {
+                plugin.getLogger().log(Level.WARNING, "Failed to copy template " + template, e);
+                deleteQuietly(target);
+                Bukkit.getScheduler().runTask(plugin, () -> onError.accept("Could not copy template '" + template + "'."));
+                return;
+            }
+
+            Bukkit.getScheduler().runTask(plugin, () -> {
+                World world = new WorldCreator(instanceName).createWorld();
+                if (world == null) {
+                    onError.accept("Could not load arena world '" + instanceName + "'.");
+                    deleteAsync(target);
+                    return;
+                }
+                world.setAutoSave(false);
+                onReady.accept(world);
+            });
+        });
+    }
+
+    private void copyWorld(Path source, Path target) throws IOException {
+        Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                Files.createDirectories(target.resolve(source.relativize(dir).toString()));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                String name = file.getFileName().toString();
+                // uid.dat must be unique per loaded world, and the lock belongs to the template
+                if (name.equals("uid.dat") || name.equals("session.lock")) {
+                    return FileVisitResult.CONTINUE;
+                }
+                // Files.copy clones the file (reflink / clonefile) on filesystems that support it
+                Files.copy(file, target.resolve(source.relativize(file).toString()),
+                        StandardCopyOption.REPLACE_EXISTING);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Unloads an instance world and removes its files. Players still inside are
+     * sent to the main world's spawn first.
+     */
+    public void deleteInstance(World world, boolean async) {
+        World fallback = Bukkit.getWorlds().get(0);
+        for (Player player : world.getPlayers()) {
+            player.teleport(fallback.getSpawnLocation());
+        }
+
+        Path folder = world.getWorldFolder().toPath();
+        if (!Bukkit.unloadWorld(world, false)) {
+            plugin.getLogger().warning("Could not unload arena world " + world.getName());
+            return;
+        }
+
+        if (async) {
+            deleteAsync(folder);
+        } else {
+            deleteQuietly(folder);
+        }
+    }
+
+    /**
+     * Removes instance folders left behind by a crash or an unclean shutdown.
+     */
+    public void deleteLeftovers() {
+        Path container = Bukkit.getWorldContainer().toPath();
+        Set<String> loaded = new HashSet<>();
+        for (World world : Bukkit.getWorlds()) {
+            loaded.add(world.getName());
+        }
+
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            try (DirectoryStream<Path> dirs = Files.newDirectoryStream(container, INSTANCE_PREFIX + "*")) {
+                for (Path dir : dirs) {
+                    if (!loaded.contains(dir.getFileName().toString())) {
+                        deleteQuietly(dir);
+                    }
+                }
+            } catch (IOException e) {
+                plugin.getLogger().log(Level.WARNING, "Failed to list old arena instances", e);
+            }
+        });
+    }
+
+    private void deleteAsync(Path folder) {
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> deleteQuietly(folder));
+    }
+
+    private void deleteQuietly(Path folder) {
+        if (!Files.exists(folder)) return;
+        try {
+            Files.walkFileTree(folder, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    Files.delete(file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                    Files.delete(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Failed to delete " + folder, e);
+        }
+    }
+
+    public static String instanceName(String arenaId) {
+        String safeId = arenaId.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9_-]", "_");
+        return INSTANCE_PREFIX + safeId + "_" + Long.toString(System.currentTimeMillis(), 36);
+    }
+
+    public static boolean isInstance(World world) {
+        return world.getName().startsWith(INSTANCE_PREFIX);
+    }
+}
@@ -0,0 +1,153 @@
+package com.wonkyfingers.simon;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Keeps track of every arena on the server and which arena each player is in.
+ */
+public class ArenaManager {
+    private final Simon plugin;
+    private final ArenaInstancer instancer;
+    private final Map<String, Arena> arenas = new HashMap<>();
+
+    public ArenaManager(Simon plugin) {
+        this.plugin = plugin;
+        this.instancer = new ArenaInstancer(plugin);
+        instancer.deleteLeftovers();
+    }
+
+    /**
+     * Starts (or restarts) the arena with the given ID around the center. Players
+     * already playing in another arena are left where they are.
+     */
+    public Arena startArena(String id, Location center, Collection<? extends Player> candidates) {
+        Arena arena = arenas.computeIfAbsent(id, key -> new Arena(plugin, key));
+        arena.stop();
+        releaseInstance(arena, true);
+
+        List<Player> players = new ArrayList<>();
+        for (Player player : candidates) {
+            Arena current = getArena(player);
+            if (current == null || current == arena) {
+                players.add(player);
+            }
+        }
+
+        // Existing arenas move their border passes first if the new one needs more room
+        int staggerIndex = nextStaggerIndex();
+        int staggerSlots = staggerSlotsFor(staggerIndex);
+        for (Arena running : arenas.values()) {
+            if (running != arena && running.isRunning()) {
+                running.setStaggerSlots(staggerSlots);
+            }
+        }
+        arena.start(center.getWorld(), center, players, staggerIndex, staggerSlots);
+        return arena;
+    }
+
+    /**
+     * Clones the template world into a fresh instance off the main thread, moves the
+     * candidates into it and starts the arena there once it is loaded.
+     */
+    public void startInstancedArena(String id, String template, Collection<? extends Player> candidates,
+                                    Consumer<String> feedback) {
+        List<Player> players = new ArrayList<>(candidates);
+        instancer.createInstance(template, ArenaInstancer.instanceName(id), world -> {
+            Location spawn = world.getSpawnLocation();
+            List<Player> joining = new ArrayList<>();
+            for (Player player : players) {
+                Arena current = getArena(player);
+                if (player.isOnline() && (current == null || current.getId().equals(id))) {
+                    player.teleport(spawn);
+                    joining.add(player);
+                }
+            }
+            Arena arena = startArena(id, spawn, joining);
+            arena.setInstanceWorld(world);
+            feedback.accept("§aArena §e" + id + "§a is ready in a fresh copy of §e" + template + "§a!");
+        }, error -> feedback.accept("§c" + error));
+    }
+
+    private void releaseInstance(Arena arena, boolean async) {
+        World world = arena.getInstanceWorld();
+        if (world != null) {
+            arena.setInstanceWorld(null);
+            instancer.deleteInstance(world, async);
+        }
+    }
+
+    // Smallest index no running arena uses; Arena turns it into a phase per job period
+    private int nextStaggerIndex() {
+        int index = 0;
+        boolean taken = true;
+        while (taken) {
+            taken = false;
+            for (Arena arena : arenas.values()) {
+                if (arena.isRunning() && arena.getStaggerIndex() == index) {
+                    taken = true;
+                    index++;
+                    break;
+                }
+            }
+        }
+        return index;
+    }
+
+    // Smallest power of two above every index in use, the new one included
+    private int staggerSlotsFor(int newIndex) {
+        int highest = newIndex;
+        for (Arena arena : arenas.values()) {
+            if (arena.isRunning()) {
+                highest = Math.max(highest, arena.getStaggerIndex());
+            }
+        }
+        return Math.max(1, Integer.highestOneBit(highest) << 1);
+    }
+
+    public boolean stopArena(String id) {
+        Arena arena = arenas.get(id);
+        if (arena == null || !arena.isRunning()) {
+            return false;
+        }
+        arena.stop();
+        releaseInstance(arena, true);
+        return true;
+    }
+
+    public Arena get(String id) {
+        return arenas.get(id);
+    }
+
+    // The running arena the player takes part in, or null
+    public Arena getArena(Player player) {
+        UUID playerId = player.getUniqueId();
+        for (Arena arena : arenas.values()) {
+            if (arena.isRunning() && arena.getParticipantIds().contains(playerId)) {
+                return arena;
+            }
+        }
+        return null;
+    }
+
+    public Collection<Arena> getArenas() {
+        return arenas.values();
+    }
+
+    public void stopAll() {
+        for (Arena arena : arenas.values()) {
+            arena.stop();
+            // The scheduler no longer takes async tasks while the plugin shuts down
+            releaseInstance(arena, false);
+        }
+    }
+}
@@ -0,0 +1,425 @@
+package com.wonkyfingers.simon;
+
+import org.bukkit.Bukkit;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Where the blocks the current task cares about are, per 16x16x16 chunk section.
+ * Sections are filled from chunk snapshots scanned off the main thread and kept
+ * up to date from block events, so block-scanning tasks become lookups over a
+ * handful of sections instead of hundreds of world reads per player.
+ */
+public class BlockIndex {
+    private final JavaPlugin plugin;
+
+    private World world;
+    private final int[] slotByMaterial = new int[Material.values().length];
+    private int slotCount;
+    private int generation; // Bumped on every watch() so late scan results are dropped
+    private boolean[] seen = new boolean[0];
+
+    private final Map<Long, Section> sections = new HashMap<>();
+    private final Set<Long> pendingSections = new HashSet<>();
+    private final DirtyBlocks dirtyBlocks = new DirtyBlocks();
+
+    private static final class Section {
+        int[] counts;
+        long[] positions = new long[8]; // Packed block positions of watched blocks
+        byte[] slots = new byte[8];
+        int size;
+        boolean ready; // False until the initial scan landed
+
+        Section(int slotCount) {
+            counts = new int[slotCount];
+        }
+
+        void add(long position, int slot) {
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, size * 2);
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            positions[size] = position;
+            slots[size] = (byte) slot;
+            size++;
+            counts[slot]++;
+        }
+
+        void remove(long position) {
+            for (int i = 0; i < size; i++) {
+                if (positions[i] == position) {
+                    counts[slots[i]]--;
+                    size--;
+                    positions[i] = positions[size];
+                    slots[i] = slots[size];
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Packed positions of blocks to re-read, in insertion order without
+     * duplicates. Block events can come in bursts, so this is primitive longs
+     * with an open-addressed table for the duplicate check instead of a
+     * HashSet of boxed Longs.
+     */
+    private static final class DirtyBlocks {
+        private static final long EMPTY = Long.MIN_VALUE; // Only x = -2^25, outside any world border
+
+        long[] positions = new long[64];
+        int size;
+        private long[] table = new long[128];
+
+        DirtyBlocks() {
+            Arrays.fill(table, EMPTY);
+        }
+
+        void add(long position) {
+            if ((size + 1) * 2 > table.length) {
+                grow();
+            }
+            int mask = table.length - 1;
+            int i = hash(position) & mask;
+            while (table[i] != EMPTY) {
+                if (table[i] == position) return;
+                i = (i + 1) & mask;
+            }
+            table[i] = position;
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            positions[size++] = position;
+        }
+
+        // Keeps only the first count positions, which the caller has compacted to the front
+        void retain(int count) {
+            size = count;
+            Arrays.fill(table, EMPTY);
+            int mask = table.length - 1;
+            for (int k = 0; k < size; k++) {
+                int i = hash(positions[k]) & mask;
+                while (table[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                table[i] = positions[k];
+            }
+        }
+
+        void clear() {
+            if (size > 0) {
+                retain(0);
+            }
+        }
+
+        private void grow() {
+            table = new long[table.length * 2];
+            retain(size);
+        }
+
+        private static int hash(long position) {
+            long h = position * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+
+    public BlockIndex(JavaPlugin plugin) {
+        this.plugin = plugin;
+        Arrays.fill(slotByMaterial, -1);
+    }
+
+    /**
+     * Starts indexing the given materials in the world and forgets everything
+     * indexed before. An empty set turns the index off.
+     */
+    public void watch(World world, Set<Material> materials) {
+        clear();
+        this.world = materials.isEmpty() ? null : world;
+        for (Material material : materials) {
+            slotByMaterial[material.ordinal()] = slotCount++;
+        }
+        seen = new boolean[slotCount];
+    }
+
+    public boolean isWatching() {
+        return world != null;
+    }
+
+    // Whether the current task cares about the material; a cheap filter for hot block events
+    public boolean isWatched(Material material) {
+        return world != null && slotByMaterial[material.ordinal()] >= 0;
+    }
+
+    /**
+     * Queues the sections around a location for scanning, so the first checks of
+     * a task don't all miss.
+     */
+    public void prime(Location location) {
+        if (world == null || location.getWorld() != world) return;
+        int x = location.getBlockX();
+        int y = location.getBlockY();
+        int z = location.getBlockZ();
+        requestSections(x - 16, y - 16, z - 16, x + 16, y + 16, z + 16);
+    }
+
+    // Number of blocks of the material in the box, counting only sections already scanned
+    public int count(Material material, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        int slot = world == null ? -1 : slotByMaterial[material.ordinal()];
+        if (slot < 0) return 0;
+        return countSlots(slot, minX, minY, minZ, maxX, maxY, maxZ);
+    }
+
+    // Number of watched blocks of any material in the box
+    public int countAll(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        if (world == null) return 0;
+        return countSlots(-1, minX, minY, minZ, maxX, maxY, maxZ);
+    }
+
+    // Number of different watched materials present in the box
+    public int countDistinct(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        if (world == null) return 0;
+        Arrays.fill(seen, false);
+        int distinct = 0;
+
+        for (int sx = minX >> 4; sx <= maxX >> 4; sx++) {
+            for (int sy = minY >> 4; sy <= maxY >> 4; sy++) {
+                for (int sz = minZ >> 4; sz <= maxZ >> 4; sz++) {
+                    Section section = sectionFor(sx, sy, sz);
+                    if (section == null) continue;
+                    for (int i = 0; i < section.size; i++) {
+                        int slot = section.slots[i];
+                        if (!seen[slot] && inBox(section.positions[i], minX, minY, minZ, maxX, maxY, maxZ)) {
+                            seen[slot] = true;
+                            distinct++;
+                        }
+                    }
+                }
+            }
+        }
+        return distinct;
+    }
+
+    private int countSlots(int slot, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        int count = 0;
+        for (int sx = minX >> 4; sx <= maxX >> 4; sx++) {
+            for (int sy = minY >> 4; sy <= maxY >> 4; sy++) {
+                for (int sz = minZ >> 4; sz <= maxZ >> 4; sz++) {
+                    Section section = sectionFor(sx, sy, sz);
+                    if (section == null) continue;
+                    // Most sections hold none of the material, so this is where the time is saved
+                    if (slot >= 0 && section.counts[slot] == 0) continue;
+                    for (int i = 0; i < section.size; i++) {
+                        if ((slot < 0 || section.slots[i] == slot)
+                                && inBox(section.positions[i], minX, minY, minZ, maxX, maxY, maxZ)) {
+                            count++;
+                        }
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    // A scanned section, or null after queueing it for a scan
+    private Section sectionFor(int sx, int sy, int sz) {
+        long key = sectionKey(sx, sy, sz);
+        Section section = sections.get(key);
+        if (section == null) {
+            sections.put(key, new Section(slotCount));
+            pendingSections.add(key);
+            return null;
+        }
+        return section.ready ? section : null;
+    }
+
+    private void requestSections(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        for (int sx = minX >> 4; sx <= maxX >> 4; sx++) {
+            for (int sy = minY >> 4; sy <= maxY >> 4; sy++) {
+                for (int sz = minZ >> 4; sz <= maxZ >> 4; sz++) {
+                    sectionFor(sx, sy, sz);
+                }
+            }
+        }
+    }
+
+    /**
+     * Remembers that a block may have changed. It is re-read on the next tick if
+     * its section is indexed.
+     */
+    public void markDirty(Block block) {
+        if (world == null || block.getWorld() != world) return;
+        int x = block.getX();
+        int y = block.getY();
+        int z = block.getZ();
+        if (sections.containsKey(sectionKey(x >> 4, y >> 4, z >> 4))) {
+            dirtyBlocks.add(blockKey(x, y, z));
+        }
+    }
+
+    /**
+     * Re-reads dirty blocks and sends queued sections off for scanning. Called once
+     * per tick on the main thread.
+     */
+    public void tick() {
+        if (world == null) return;
+
+        if (dirtyBlocks.size > 0) {
+            long[] positions = dirtyBlocks.positions;
+            int kept = 0;
+            for (int k = 0; k < dirtyBlocks.size; k++) {
+                long position = positions[k];
+                int x = blockX(position);
+                int y = blockY(position);
+                int z = blockZ(position);
+                Section section = sections.get(sectionKey(x >> 4, y >> 4, z >> 4));
+                // Wait for the scan, or its snapshot would overwrite the change
+                if (section != null && !section.ready) {
+                    positions[kept++] = position;
+                    continue;
+                }
+                if (section == null) continue;
+
+                section.remove(position);
+                int slot = slotByMaterial[world.getBlockAt(x, y, z).getType().ordinal()];
+                if (slot >= 0) {
+                    section.add(position, slot);
+                }
+            }
+            dirtyBlocks.retain(kept);
+        }
+
+        if (!pendingSections.isEmpty()) {
+            scanPending();
+        }
+    }
+
+    private void scanPending() {
+        // One snapshot per chunk, however many of its sections are wanted
+        Map<Long, List<Long>> byChunk = new HashMap<>();
+        for (long key : pendingSections) {
+            byChunk.computeIfAbsent(chunkKey(sectionX(key), sectionZ(key)), k -> new ArrayList<>()).add(key);
+        }
+        pendingSections.clear();
+
+        List<ChunkSnapshot> snapshots = new ArrayList<>();
+        List<List<Long>> wanted = new ArrayList<>();
+        for (List<Long> keys : byChunk.values()) {
+            int chunkX = sectionX(keys.get(0));
+            int chunkZ = sectionZ(keys.get(0));
+            // Never load a chunk for this; its sections stay unready until someone asks again
+            if (!world.isChunkLoaded(chunkX, chunkZ)) {
+                for (long key : keys) {
+                    sections.remove(key);
+                }
+                continue;
+            }
+            snapshots.add(world.getChunkAt(chunkX, chunkZ).getChunkSnapshot(false, false, false));
+            wanted.add(keys);
+        }
+        if (snapshots.isEmpty()) return;
+
+        int scanGeneration = generation;
+        int[] slots = slotByMaterial.clone();
+        int scanSlotCount = slotCount;
+        int minY = world.getMinHeight();
+        int maxY = world.getMaxHeight();
+
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            Map<Long, Section> scanned = new HashMap<>();
+            for (int c = 0; c < snapshots.size(); c++) {
+                ChunkSnapshot snapshot = snapshots.get(c);
+                for (long key : wanted.get(c)) {
+                    Section section = new Section(scanSlotCount);
+                    int baseX = sectionX(key) << 4;
+                    int baseY = sectionY(key) << 4;
+                    int baseZ = sectionZ(key) << 4;
+                    if (baseY >= minY && baseY < maxY && !snapshot.isSectionEmpty((baseY - minY) >> 4)) {
+                        for (int y = 0; y < 16; y++) {
+                            for (int z = 0; z < 16; z++) {
+                                for (int x = 0; x < 16; x++) {
+                                    int slot = slots[snapshot.getBlockType(x, baseY + y, z).ordinal()];
+                                    if (slot >= 0) {
+                                        section.add(blockKey(baseX + x, baseY + y, baseZ + z), slot);
+                                    }
+                                }
+                            }
+                        }
+                    }
+                    section.ready = true;
+                    scanned.put(key, section);
+                }
+            }
+
+            Bukkit.getScheduler().runTask(plugin, () -> {
+                if (generation != scanGeneration) return;
+                sections.putAll(scanned);
+            });
+        });
+    }
+
+    public void clear() {
+        generation++;
+        world = null;
+        Arrays.fill(slotByMaterial, -1);
+        slotCount = 0;
+        sections.clear();
+        pendingSections.clear();
+        dirtyBlocks.clear();
+    }
+
+    private static boolean inBox(long position, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        int x = blockX(position);
+        int y = blockY(position);
+        int z = blockZ(position);
+        return x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ;
+    }
+
+    // Same packing as block positions in the game: 26 bits x, 26 bits z, 12 bits y
+    private static long blockKey(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+    }
+
+    private static int blockX(long key) {
+        return (int) (key >> 38);
+    }
+
+    private static int blockY(long key) {
+        return (int) (key << 52 >> 52);
+    }
+
+    private static int blockZ(long key) {
+        return (int) (key << 26 >> 38);
+    }
+
+    private static long sectionKey(int sx, int sy, int sz) {
+        return blockKey(sx, sy, sz);
+    }
+
+    private static int sectionX(long key) {
+        return blockX(key);
+    }
+
+    private static int sectionY(long key) {
+        return blockY(key);
+    }
+
+    private static int sectionZ(long key) {
+        return blockZ(key);
+    }
+
+    private static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+}
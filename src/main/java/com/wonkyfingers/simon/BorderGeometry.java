@@ -0,0 +1,129 @@
+package com.wonkyfingers.simon;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Caches the trigonometry and ring coordinates used to draw the particle border.
+ * Sin/cos tables are shared per particle count, and the ring itself is only
+ * rebuilt when the border radius moves into a different bucket.
+ */
+public class BorderGeometry {
+    // Radius is quantized to 1/16 of a block before deciding whether to rebuild the ring
+    private static final double RADIUS_BUCKETS_PER_BLOCK = 16.0;
+    // Point counts are rounded up to a multiple of this, so a shrink gets a new trig table every
+    // 16 blocks of circumference: 56 tables for a 300-block zone shrinking to nothing
+    private static final int POINT_COUNT_STEP = 16;
+
+    private static final Map<Integer, double[][]> TRIG_TABLES = new HashMap<>();
+    // Arrays allocated for the shared trig tables; they belong to no single arena
+    private static long trigAllocations;
+
+    private double centerX;
+    private double centerZ;
+    private long radiusBucket = Long.MIN_VALUE;
+    private double radius;
+    private int pointCount;
+    private double[] xs = new double[0];
+    private double[] zs = new double[0];
+
+    // Number of ring arrays allocated by this cache, for confirming steady-state rendering doesn't allocate
+    private long allocations;
+
+    public BorderGeometry(double centerX, double centerZ) {
+        this.centerX = centerX;
+        this.centerZ = centerZ;
+    }
+
+    public void setCenter(double centerX, double centerZ) {
+        this.centerX = centerX;
+        this.centerZ = centerZ;
+        this.radiusBucket = Long.MIN_VALUE;
+    }
+
+    /**
+     * Makes sure the cached ring matches the given radius.
+     *
+     * @return true if the ring was rebuilt
+     */
+    public boolean update(double newRadius) {
+        long bucket = Math.round(newRadius * RADIUS_BUCKETS_PER_BLOCK);
+        if (bucket == radiusBucket) {
+            return false;
+        }
+        radiusBucket = bucket;
+        radius = bucket / RADIUS_BUCKETS_PER_BLOCK;
+
+        // Using a ratio of 1 particle per block of circumference
+        double circumference = 2 * Math.PI * radius;
+        int count = (int) Math.max(50, Math.ceil(circumference));
+        pointCount = (count + POINT_COUNT_STEP - 1) / POINT_COUNT_STEP * POINT_COUNT_STEP;
+
+        if (xs.length < pointCount) {
+            xs = new double[pointCount];
+            zs = new double[pointCount];
+            allocations += 2;
+        }
+
+        double[][] trig = trigTable(pointCount);
+        double[] cos = trig[0];
+        double[] sin = trig[1];
+        for (int i = 0; i < pointCount; i++) {
+            xs[i] = centerX + radius * cos[i];
+            zs[i] = centerZ + radius * sin[i];
+        }
+        return true;
+    }
+
+    private double[][] trigTable(int count) {
+        double[][] table = TRIG_TABLES.get(count);
+        if (table == null) {
+            table = new double[2][count];
+            for (int i = 0; i < count; i++) {
+                double angle = 2 * Math.PI * i / count;
+                table[0][i] = Math.cos(angle);
+                table[1][i] = Math.sin(angle);
+            }
+            TRIG_TABLES.put(count, table);
+            trigAllocations += 3;
+        }
+        return table;
+    }
+
+    public double getCenterX() {
+        return centerX;
+    }
+
+    public double getCenterZ() {
+        return centerZ;
+    }
+
+    public double getRadius() {
+        return radius;
+    }
+
+    public int getPointCount() {
+        return pointCount;
+    }
+
+    public double getX(int index) {
+        return xs[index];
+    }
+
+    public double getZ(int index) {
+        return zs[index];
+    }
+
+    public long getAllocations() {
+        return allocations;
+    }
+
+    // Trig tables cached so far, shared by every arena
+    public static int getTrigTableCount() {
+        return TRIG_TABLES.size();
+    }
+
+    public static long getTrigAllocations() {
+        return trigAllocations;
+    }
+}
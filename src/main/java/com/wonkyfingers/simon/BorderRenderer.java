@@ -0,0 +1,164 @@
+package com.wonkyfingers.simon;
+
+import org.bukkit.Location;
+import org.bukkit.Particle;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.java.JavaPlugin;
+
+/**
+ * Draws the particle border, either for the whole world at once or per player
+ * with only the part of the ring that player can actually see. The wall runs
+ * from the terrain surface up to a fixed band above it.
+ */
+public class BorderRenderer {
+    private final World world;
+    private final Game_Setup.GameConfig config;
+    private final BorderGeometry geometry;
+    private final BorderTerrain terrain;
+    private int heightPerSection;
+    private int bandSections;
+    private long renderCount;
+
+    public BorderRenderer(JavaPlugin plugin, World world, Location center, Game_Setup.GameConfig config) {
+        this.world = world;
+        this.config = config;
+        this.geometry = new BorderGeometry(center.getX(), center.getZ());
+        this.terrain = new BorderTerrain(plugin, world, center.getBlockY());
+    }
+
+    public void render(double radius) {
+        // Only recompute the ring and wall layout when the radius actually changed
+        boolean ringChanged = geometry.update(radius);
+        if (ringChanged) {
+            double circumference = 2 * Math.PI * geometry.getRadius();
+            int wallSections = (int) Math.max(8, Math.ceil(circumference / 20));
+            heightPerSection = Math.max(1, (world.getMaxHeight() - world.getMinHeight()) / wallSections);
+            bandSections = Math.max(1, (int) Math.ceil(config.getBorderWallHeight() / heightPerSection));
+        }
+        terrain.update(geometry, ringChanged);
+
+        switch (config.getBorderMode()) {
+            case PER_PLAYER:
+                for (Player player : world.getPlayers()) {
+                    renderFor(player);
+                }
+                break;
+            case DITHERED:
+                renderDithered();
+                break;
+            default:
+                renderWorld(0, 1);
+                break;
+        }
+        renderCount++;
+    }
+
+    private void renderDithered() {
+        // Split the ring into interleaved subsets small enough to fit the budget, then
+        // draw one subset per call so the whole ring is swept every few ticks. Each point
+        // is a column of bandSections spawns with heightPerSection particles each
+        int pointsPerTick = Math.max(1, config.getBorderParticleBudget() / (bandSections * heightPerSection));
+        int subsets = Math.max(1, (geometry.getPointCount() + pointsPerTick - 1) / pointsPerTick);
+        // Ring indices are fixed in the world, so which points are lit never depends on where players stand
+        renderWorld((int) (renderCount % subsets), subsets);
+    }
+
+    private void renderWorld(int offset, int step) {
+        int pointCount = geometry.getPointCount();
+        for (int i = offset; i < pointCount; i += step) {
+            double x = geometry.getX(i);
+            double z = geometry.getZ(i);
+            int surface = terrain.getSurface(i, pointCount);
+
+            for (int h = 0; h < bandSections; h++) {
+                world.spawnParticle(
+                        Particle.DUST_COLOR_TRANSITION,
+                        x, surface + h * heightPerSection, z,
+                        heightPerSection,
+                        0, heightPerSection, 0,
+                        1.0,
+                        config.getDustOptions()
+                );
+            }
+        }
+    }
+
+    private void renderFor(Player player) {
+        Location loc = player.getLocation();
+        double px = loc.getX();
+        double py = loc.getY();
+        double pz = loc.getZ();
+
+        double viewDistance = config.getBorderViewDistance();
+        double radius = geometry.getRadius();
+        double dx = px - geometry.getCenterX();
+        double dz = pz - geometry.getCenterZ();
+        double playerRadius = Math.sqrt(dx * dx + dz * dz);
+
+        // Nothing on the ring is within view distance
+        if (Math.abs(playerRadius - radius) > viewDistance) return;
+
+        int pointCount = geometry.getPointCount();
+        int first;
+        int last;
+        double cosLimit = playerRadius < 1e-6 ? -2
+                : (playerRadius * playerRadius + radius * radius - viewDistance * viewDistance) / (2 * playerRadius * radius);
+        if (cosLimit <= -1) {
+            // Whole ring is in view (small border)
+            first = 0;
+            last = pointCount - 1;
+        } else {
+            // Only the arc facing the player, by the law of cosines
+            double halfArc = Math.acos(Math.min(1, cosLimit));
+            double facing = Math.atan2(dz, dx);
+            double pointsPerRadian = pointCount / (2 * Math.PI);
+            first = (int) Math.floor((facing - halfArc) * pointsPerRadian);
+            last = (int) Math.ceil((facing + halfArc) * pointsPerRadian);
+        }
+
+        double band = config.getBorderViewHeight();
+        double near = viewDistance / 3;
+        double nearSquared = near * near;
+        double midSquared = 4 * nearSquared;
+        double viewSquared = viewDistance * viewDistance;
+
+        for (int k = first; k <= last; k++) {
+            int i = Math.floorMod(k, pointCount);
+            double x = geometry.getX(i);
+            double z = geometry.getZ(i);
+            double ox = x - px;
+            double oz = z - pz;
+            double distanceSquared = ox * ox + oz * oz;
+            if (distanceSquared > viewSquared) continue;
+
+            // Thin out the far part of the arc; keyed on the ring index so it doesn't shimmer as players move
+            int stride = distanceSquared < nearSquared ? 1 : distanceSquared < midSquared ? 2 : 4;
+            if ((i & (stride - 1)) != 0) continue;
+
+            // Part of the terrain band that is also within the player's vertical view, in whole sections
+            int surface = terrain.getSurface(i, pointCount);
+            int lowSection = Math.max(0, (int) Math.floor((py - band - surface) / heightPerSection));
+            int highSection = Math.min(bandSections - 1, (int) Math.floor((py + band - surface) / heightPerSection));
+
+            for (int h = lowSection; h <= highSection; h++) {
+                player.spawnParticle(
+                        Particle.DUST_COLOR_TRANSITION,
+                        x, surface + h * heightPerSection, z,
+                        heightPerSection,
+                        0, heightPerSection, 0,
+                        1.0,
+                        config.getDustOptions()
+                );
+            }
+        }
+    }
+
+    public void clear() {
+        terrain.clear();
+    }
+
+    public long getAllocations() {
+        return geometry.getAllocations() + terrain.getAllocations();
+    }
+}
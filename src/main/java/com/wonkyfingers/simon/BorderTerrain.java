@@ -0,0 +1,243 @@
+package com.wonkyfingers.simon;
+
+import org.bukkit.Bukkit;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.World;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.util.Arrays;
+
+/**
+ * Surface height under every point of the border ring. Chunk snapshots are taken
+ * on the main thread and the heightmaps are sampled asynchronously, so the wall
+ * can follow the terrain without touching the world from the render loop.
+ */
+public class BorderTerrain {
+    // Snapshots older than this are retaken so pillars and craters eventually show up
+    private static final long SNAPSHOT_MAX_AGE_MILLIS = 30_000L;
+    // How often to retry points whose chunk wasn't loaded yet
+    private static final long MISSING_RETRY_MILLIS = 5_000L;
+
+    private final JavaPlugin plugin;
+    private final World world;
+    private final int fallbackSurface;
+    private final SnapshotCache snapshots = new SnapshotCache();
+
+    // Per-point input of the sampler. Only grown, and not touched again until the sampler is done
+    private int[] blockXs = new int[0];
+    private int[] blockZs = new int[0];
+    private ChunkSnapshot[] pointSnapshots = new ChunkSnapshot[0];
+
+    // The sampler fills back, then the main thread swaps it with surface
+    private int[] surface = new int[0];
+    private int[] back = new int[0];
+    private int surfaceCount;
+    private int sampledCount;   // Point count of the last pass started
+    private int generation;     // Bumped when a pass in flight must not be published
+    private boolean sampling = false;
+    private boolean dirty = false;
+    private boolean missingChunks = false;
+    private long lastSample = 0;
+
+    // Arrays allocated here, counted with BorderGeometry's
+    private long allocations;
+
+    /**
+     * Chunk snapshots and when they were taken, keyed by packed chunk coordinates.
+     * Open-addressed over primitive arrays so a lookup doesn't box the key.
+     */
+    private static final class SnapshotCache {
+        private long[] keys = new long[64];
+        private ChunkSnapshot[] values = new ChunkSnapshot[64]; // Null marks a free entry
+        private long[] times = new long[64];
+        private int size;
+        long allocations;
+
+        // Entry of the chunk, or -1
+        int find(long key) {
+            int mask = keys.length - 1;
+            for (int i = hash(key) & mask; values[i] != null; i = (i + 1) & mask) {
+                if (keys[i] == key) return i;
+            }
+            return -1;
+        }
+
+        ChunkSnapshot snapshot(int entry) {
+            return values[entry];
+        }
+
+        long time(int entry) {
+            return times[entry];
+        }
+
+        void put(long key, ChunkSnapshot snapshot, long time) {
+            int entry = find(key);
+            if (entry < 0) {
+                if ((size + 1) * 2 > keys.length) {
+                    grow();
+                }
+                int mask = keys.length - 1;
+                entry = hash(key) & mask;
+                while (values[entry] != null) {
+                    entry = (entry + 1) & mask;
+                }
+                keys[entry] = key;
+                size++;
+            }
+            values[entry] = snapshot;
+            times[entry] = time;
+        }
+
+        void clear() {
+            Arrays.fill(values, null);
+            size = 0;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            ChunkSnapshot[] oldValues = values;
+            long[] oldTimes = times;
+            keys = new long[oldKeys.length * 2];
+            values = new ChunkSnapshot[oldKeys.length * 2];
+            times = new long[oldKeys.length * 2];
+            allocations += 3;
+
+            int mask = keys.length - 1;
+            for (int k = 0; k < oldKeys.length; k++) {
+                if (oldValues[k] == null) continue;
+                int i = hash(oldKeys[k]) & mask;
+                while (values[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[k];
+                values[i] = oldValues[k];
+                times[i] = oldTimes[k];
+            }
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+
+    public BorderTerrain(JavaPlugin plugin, World world, int fallbackSurface) {
+        this.plugin = plugin;
+        this.world = world;
+        this.fallbackSurface = fallbackSurface;
+    }
+
+    /**
+     * Called on the main thread whenever the ring was rebuilt, and every render so
+     * unloaded chunks get picked up again later.
+     */
+    public void update(BorderGeometry geometry, boolean ringChanged) {
+        long now = System.currentTimeMillis();
+        if (ringChanged) {
+            dirty = true;
+        } else if (missingChunks && now - lastSample > MISSING_RETRY_MILLIS) {
+            dirty = true;
+        }
+
+        int count = geometry.getPointCount();
+        if (count != sampledCount) {
+            // A different point count moves every point; a pass for the old ring is stale.
+            // Smaller radius moves keep it, or the wall would never be sampled while shrinking
+            sampledCount = count;
+            generation++;
+        }
+        if (!dirty || sampling) return;
+
+        if (blockXs.length < count) {
+            blockXs = new int[count];
+            blockZs = new int[count];
+            pointSnapshots = new ChunkSnapshot[count];
+            allocations += 3;
+        }
+        if (back.length < count) {
+            back = new int[count];
+            allocations++;
+        }
+        boolean missing = false;
+
+        for (int i = 0; i < count; i++) {
+            int x = (int) Math.floor(geometry.getX(i));
+            int z = (int) Math.floor(geometry.getZ(i));
+            blockXs[i] = x;
+            blockZs[i] = z;
+            pointSnapshots[i] = snapshotAt(x >> 4, z >> 4, now);
+            missing |= pointSnapshots[i] == null;
+        }
+
+        dirty = false;
+        sampling = true;
+        missingChunks = missing;
+        lastSample = now;
+
+        int[] heights = back;
+        int startGeneration = generation;
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            for (int i = 0; i < count; i++) {
+                ChunkSnapshot snapshot = pointSnapshots[i];
+                heights[i] = snapshot == null
+                        ? fallbackSurface
+                        : snapshot.getHighestBlockYAt(blockXs[i] & 15, blockZs[i] & 15) + 1;
+            }
+            Bukkit.getScheduler().runTask(plugin, () -> publish(heights, count, startGeneration));
+        });
+    }
+
+    // Main thread: the sampled heights become the surface, the old surface the next back buffer
+    private void publish(int[] heights, int count, int startGeneration) {
+        sampling = false;
+        if (generation != startGeneration) {
+            // Cleared or moved to a new ring while sampling; resample on the next render
+            dirty = true;
+            return;
+        }
+        back = surface;
+        surface = heights;
+        surfaceCount = count;
+    }
+
+    private ChunkSnapshot snapshotAt(int chunkX, int chunkZ, long now) {
+        long key = ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+        int entry = snapshots.find(key);
+        ChunkSnapshot snapshot = entry < 0 ? null : snapshots.snapshot(entry);
+        if (snapshot != null && now - snapshots.time(entry) < SNAPSHOT_MAX_AGE_MILLIS) {
+            return snapshot;
+        }
+        // Never load chunks just to draw the border
+        if (!world.isChunkLoaded(chunkX, chunkZ)) {
+            return snapshot;
+        }
+        snapshot = world.getChunkAt(chunkX, chunkZ).getChunkSnapshot(true, false, false);
+        snapshots.put(key, snapshot, now);
+        return snapshot;
+    }
+
+    /**
+     * Surface Y for the given ring point. Until the sampler catches up with a new
+     * point count the nearest sampled point is used instead.
+     */
+    public int getSurface(int index, int pointCount) {
+        if (surfaceCount == 0) {
+            return fallbackSurface;
+        }
+        if (surfaceCount == pointCount) {
+            return surface[index];
+        }
+        return surface[(int) ((long) index * surfaceCount / pointCount)];
+    }
+
+    public long getAllocations() {
+        return allocations + snapshots.allocations;
+    }
+
+    public void clear() {
+        snapshots.clear();
+        surfaceCount = 0;
+        sampledCount = 0;
+        generation++;
+    }
+}
@@ -0,0 +1,155 @@
+package com.wonkyfingers.simon;
+
+import org.bukkit.Particle;
+import org.bukkit.Sound;
+import org.bukkit.entity.Player;
+import org.bukkit.potion.PotionEffectType;
+
+import java.util.Arrays;
+import java.util.function.IntSupplier;
+
+/**
+ * Sends task announcements to the players of one arena a fixed number of
+ * players per tick, so a big game doesn't send every title, chat line, sound
+ * and particle burst in the same tick. Each announcement is composed once and
+ * only fanned out here. Pending deliveries live in arrays indexed by
+ * participant slot and are overwritten in place, so once every slot has been
+ * served an announcement allocates nothing.
+ */
+public class Broadcaster {
+    private final GameClock clock;
+    private final IntSupplier batchSize; // Players served per tick
+    private Delivery[] deliveries = new Delivery[16]; // Per slot, reused for every announcement
+    private int[] queue = new int[16];                // Slots waiting for a delivery, oldest first
+    private int queueHead;
+    private int queueSize;
+    private GameClock.Job job;
+
+    /**
+     * A finished announcement. Everything that is the same for every player is
+     * built here, once.
+     */
+    public static final class Announcement {
+        private final String title;
+        private final String subtitle;
+        private final String chat;
+        private final Sound sound;
+        private final float pitch;
+        private final Particle particle;
+
+        public Announcement(String title, String subtitle, String chat, Sound sound, float pitch, Particle particle) {
+            this.title = title;
+            this.subtitle = subtitle;
+            this.chat = chat;
+            this.sound = sound;
+            this.pitch = pitch;
+            this.particle = particle;
+        }
+    }
+
+    private static final class Delivery {
+        Player player;
+        Announcement announcement; // Null when nothing is pending for the slot
+    }
+
+    public Broadcaster(GameClock clock, IntSupplier batchSize) {
+        this.clock = clock;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Queues the announcement for the online players, after anything still
+     * queued. A player still waiting for an earlier announcement keeps their
+     * place in the queue and gets only the newest one.
+     *
+     * @param bySlot online player per slot, null for slots that are offline
+     */
+    public void announce(Announcement announcement, Player[] bySlot, int slotCount) {
+        ensureCapacity(slotCount);
+        for (int slot = 0; slot < slotCount; slot++) {
+            Player player = bySlot[slot];
+            if (player == null) continue;
+
+            Delivery delivery = deliveries[slot];
+            if (delivery == null) {
+                delivery = deliveries[slot] = new Delivery();
+            }
+            if (delivery.announcement == null) {
+                queue[(queueHead + queueSize++) % queue.length] = slot;
+            }
+            delivery.player = player;
+            delivery.announcement = announcement;
+        }
+
+        if (queueSize > 0 && (job == null || job.isCancelled())) {
+            flush();
+            if (queueSize > 0) {
+                job = clock.scheduleRepeating(1L, 1L, this::flush);
+            }
+        }
+    }
+
+    private void flush() {
+        for (int sent = Math.max(1, batchSize.getAsInt()); sent > 0 && queueSize > 0; sent--) {
+            Delivery delivery = deliveries[queue[queueHead]];
+            queueHead = (queueHead + 1) % queue.length;
+            queueSize--;
+
+            Player player = delivery.player;
+            Announcement announcement = delivery.announcement;
+            delivery.player = null;
+            delivery.announcement = null;
+            deliver(player, announcement);
+        }
+
+        if (queueSize == 0 && job != null) {
+            job.cancel();
+            job = null;
+        }
+    }
+
+    // Every slot is queued at most once, so the queue never needs more room than there are slots
+    private void ensureCapacity(int slotCount) {
+        if (deliveries.length < slotCount) {
+            deliveries = Arrays.copyOf(deliveries, Math.max(slotCount, deliveries.length * 2));
+        }
+        if (queue.length < slotCount) {
+            int[] grown = new int[deliveries.length];
+            for (int i = 0; i < queueSize; i++) {
+                grown[i] = queue[(queueHead + i) % queue.length];
+            }
+            queue = grown;
+            queueHead = 0;
+        }
+    }
+
+    private static void deliver(Player player, Announcement announcement) {
+        if (!player.isOnline()) return;
+
+        player.sendTitle(announcement.title, announcement.subtitle, 10, 40, 10);
+        player.sendMessage(announcement.chat);
+
+        // Dead players can't hear or see the effects, blinded ones can't see the particles
+        if (player.isDead()) return;
+        player.playSound(player.getLocation(), announcement.sound, 1.0f, announcement.pitch);
+        if (!player.hasPotionEffect(PotionEffectType.BLINDNESS) && !player.hasPotionEffect(PotionEffectType.DARKNESS)) {
+            player.spawnParticle(announcement.particle, player.getLocation().add(0, 2, 0), 5, 0.5, 0.5, 0.5, 0);
+        }
+    }
+
+    // Drops whatever hasn't been sent yet
+    public void clear() {
+        for (Delivery delivery : deliveries) {
+            if (delivery != null) {
+                delivery.player = null;
+                delivery.announcement = null;
+            }
+        }
+        queueHead = 0;
+        queueSize = 0;
+        if (job != null) {
+            job.cancel();
+            job = null;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.wonkyfingers.simon;
+
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.WorldBorder;
+import org.bukkit.entity.Player;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Shows the zone with a per-player virtual world border instead of particles.
+ * The client draws and animates it, so the server only sends a packet when a
+ * shrink starts or a player joins.
+ */
+public class ClientBorder {
+    private final World world;
+    private final double centerX;
+    private final double centerZ;
+    private final Map<UUID, WorldBorder> borders = new HashMap<>();
+
+    // Where the border is heading, so late joiners get the same animation
+    private double fromRadius;
+    private double toRadius;
+    private long shrinkStartMillis;
+    private long shrinkMillis;
+
+    public ClientBorder(World world, double centerX, double centerZ, double radius) {
+        this.world = world;
+        this.centerX = centerX;
+        this.centerZ = centerZ;
+        this.fromRadius = radius;
+        this.toRadius = radius;
+    }
+
+    /**
+     * Gives every participant in the game world a border and drops everyone else.
+     */
+    public void syncPlayers(List<Player> players) {
+        Set<UUID> current = new HashSet<>();
+        for (Player player : players) {
+            if (player.getWorld() == world) {
+                current.add(player.getUniqueId());
+            }
+        }
+
+        Iterator<Map.Entry<UUID, WorldBorder>> it = borders.entrySet().iterator();
+        while (it.hasNext()) {
+            UUID playerId = it.next().getKey();
+            if (!current.contains(playerId)) {
+                Player player = Bukkit.getPlayer(playerId);
+                if (player != null) {
+                    player.setWorldBorder(null);
+                }
+                it.remove();
+            }
+        }
+
+        for (Player player : players) {
+            if (current.contains(player.getUniqueId()) && !borders.containsKey(player.getUniqueId())) {
+                WorldBorder border = createBorder();
+                player.setWorldBorder(border);
+                borders.put(player.getUniqueId(), border);
+            }
+        }
+    }
+
+    private WorldBorder createBorder() {
+        WorldBorder border = Bukkit.createWorldBorder();
+        border.setCenter(centerX, centerZ);
+        border.setWarningDistance(5);
+        border.setWarningTime(0);
+
+        // Pick up a shrink that is already running
+        long remainingMillis = shrinkStartMillis + shrinkMillis - System.currentTimeMillis();
+        if (remainingMillis > 0) {
+            double done = 1.0 - (double) remainingMillis / shrinkMillis;
+            border.setSize(diameter(fromRadius + (toRadius - fromRadius) * done));
+            border.setSize(diameter(toRadius), Math.max(1, remainingMillis / 1000));
+        } else {
+            border.setSize(diameter(toRadius));
+        }
+        return border;
+    }
+
+    /**
+     * Starts the client-side lerp from the current size to the given radius.
+     */
+    public void shrinkTo(double currentRadius, double targetRadius, long seconds) {
+        fromRadius = currentRadius;
+        toRadius = targetRadius;
+        shrinkStartMillis = System.currentTimeMillis();
+        shrinkMillis = seconds * 1000;
+
+        for (WorldBorder border : borders.values()) {
+            border.setSize(diameter(currentRadius));
+            border.setSize(diameter(targetRadius), seconds);
+        }
+    }
+
+    /**
+     * Snaps every border to the given radius, e.g. at the end of a shrink phase.
+     */
+    public void setRadius(double radius) {
+        fromRadius = radius;
+        toRadius = radius;
+        shrinkMillis = 0;
+
+        for (WorldBorder border : borders.values()) {
+            border.setSize(diameter(radius));
+        }
+    }
+
+    // The vanilla border is square, so it is sized to enclose the circular zone
+    private static double diameter(double radius) {
+        return Math.max(1.0, radius * 2);
+    }
+
+    public void clear() {
+        for (UUID playerId : borders.keySet()) {
+            Player player = Bukkit.getPlayer(playerId);
+            if (player != null) {
+                player.setWorldBorder(null);
+            }
+        }
+        borders.clear();
+    }
+}
@@ -0,0 +1,71 @@
+package com.wonkyfingers.simon;
+
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Decides which players need a zone check on a given tick. A player deep inside
+ * the zone can't reach the border before (margin / closing speed) ticks, so they
+ * are left alone until then; players near the edge come up every tick.
+ */
+public class DamageScheduler {
+    // Never trust an estimate for longer than this, in ticks
+    private static final long MAX_DELAY_TICKS = 200L;
+
+    private final Map<UUID, long[]> nextCheck = new HashMap<>();
+    private final List<Player> due = new ArrayList<>();
+
+    /**
+     * @return the players in the zone's world whose check is due on this tick, in a list reused between calls
+     */
+    public List<Player> collectDue(List<Player> players, World world, long tick) {
+        due.clear();
+        for (Player player : players) {
+            if (player.getWorld() != world) continue;
+            long[] next = nextCheck.get(player.getUniqueId());
+            if (next == null || next[0] <= tick) {
+                due.add(player);
+            }
+        }
+        return due;
+    }
+
+    /**
+     * Works out when to look at a player again.
+     *
+     * @param margin           blocks between the player and the damage line, negative if outside
+     * @param closingPerTick   fastest the player and border can approach each other, in blocks per tick
+     * @param damagePeriod     ticks between hits for a player who is outside
+     */
+    public void schedule(Player player, long tick, double margin, double closingPerTick, long damagePeriod) {
+        long delay;
+        if (margin < 0) {
+            delay = damagePeriod;
+        } else {
+            delay = Math.max(1L, Math.min(MAX_DELAY_TICKS, (long) Math.floor(margin / closingPerTick)));
+        }
+
+        long[] next = nextCheck.get(player.getUniqueId());
+        if (next == null) {
+            nextCheck.put(player.getUniqueId(), new long[]{tick + delay});
+        } else {
+            next[0] = tick + delay;
+        }
+    }
+
+    // Forget the estimate, e.g. after a teleport, so the player is checked on the next tick
+    public void invalidate(UUID playerId) {
+        nextCheck.remove(playerId);
+    }
+
+    public void clear() {
+        nextCheck.clear();
+        due.clear();
+    }
+}
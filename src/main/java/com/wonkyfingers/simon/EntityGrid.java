@@ -0,0 +1,165 @@
+package com.wonkyfingers.simon;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A spatial hash of the entity types the current task looks for. It is built
+ * at most once per tick from a single world query and shared by every
+ * player's check, so proximity tasks cost one entity pass per tick plus a few
+ * cell lookups per player.
+ */
+public class EntityGrid {
+    private static final int CELL_SHIFT = 3;          // 8-block cells
+    private static final int CELL_OFFSET = 1 << 22;   // Keeps cell coordinates positive for sorting
+    private static final int INDEX_BITS = 17;
+    private static final int MAX_ENTITIES = 1 << INDEX_BITS;
+
+    private World world;
+    private Class<? extends Entity>[] types;
+    private long builtTick = -1;
+
+    // Entities sorted by cell, with their positions copied out at build time
+    private Entity[] entities = new Entity[64];
+    private double[] xs = new double[64];
+    private double[] ys = new double[64];
+    private double[] zs = new double[64];
+    private long[] sortKeys = new long[64];
+    private int count;
+
+    // Build scratch in discovery order, kept so a rebuild doesn't allocate
+    private Entity[] rawEntities = new Entity[64];
+    private double[] rawXs = new double[64];
+    private double[] rawYs = new double[64];
+    private double[] rawZs = new double[64];
+
+    private final List<Entity> result = new ArrayList<>();
+    private final Location scratch = new Location(null, 0, 0, 0);
+
+    @SuppressWarnings("unchecked")
+    public void watch(World world, Set<Class<? extends Entity>> entityTypes) {
+        clear();
+        if (world != null && !entityTypes.isEmpty()) {
+            this.world = world;
+            this.types = entityTypes.toArray(new Class[0]);
+        }
+    }
+
+    public boolean isWatching() {
+        return world != null;
+    }
+
+    /**
+     * Watched entities whose position is inside the box around the location, in a
+     * list reused between calls.
+     */
+    public List<Entity> query(Location center, double rx, double ry, double rz, long tick) {
+        result.clear();
+        if (world == null || center.getWorld() != world) return result;
+        build(tick);
+
+        double cx = center.getX();
+        double cy = center.getY();
+        double cz = center.getZ();
+        int minCellX = (int) Math.floor(cx - rx) >> CELL_SHIFT;
+        int maxCellX = (int) Math.floor(cx + rx) >> CELL_SHIFT;
+        int minCellZ = (int) Math.floor(cz - rz) >> CELL_SHIFT;
+        int maxCellZ = (int) Math.floor(cz + rz) >> CELL_SHIFT;
+
+        for (int cellX = minCellX; cellX <= maxCellX; cellX++) {
+            for (int cellZ = minCellZ; cellZ <= maxCellZ; cellZ++) {
+                long cell = cellKey(cellX, cellZ);
+                for (int i = lowerBound(cell << INDEX_BITS); i < count && (sortKeys[i] >>> INDEX_BITS) == cell; i++) {
+                    if (Math.abs(xs[i] - cx) <= rx && Math.abs(ys[i] - cy) <= ry && Math.abs(zs[i] - cz) <= rz) {
+                        result.add(entities[i]);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private void build(long tick) {
+        if (tick == builtTick) return;
+        builtTick = tick;
+
+        Collection<Entity> found = world.getEntitiesByClasses(types);
+        int n = Math.min(found.size(), MAX_ENTITIES - 1);
+        ensureCapacity(n);
+
+        int i = 0;
+        for (Entity entity : found) {
+            if (i == n) break;
+            entity.getLocation(scratch);
+            rawEntities[i] = entity;
+            rawXs[i] = scratch.getX();
+            rawYs[i] = scratch.getY();
+            rawZs[i] = scratch.getZ();
+            long cell = cellKey((int) Math.floor(rawXs[i]) >> CELL_SHIFT, (int) Math.floor(rawZs[i]) >> CELL_SHIFT);
+            sortKeys[i] = (cell << INDEX_BITS) | i;
+            i++;
+        }
+        count = n;
+        Arrays.sort(sortKeys, 0, count);
+
+        // Reorder everything into cell order
+        for (int k = 0; k < count; k++) {
+            int index = (int) (sortKeys[k] & (MAX_ENTITIES - 1));
+            entities[k] = rawEntities[index];
+            xs[k] = rawXs[index];
+            ys[k] = rawYs[index];
+            zs[k] = rawZs[index];
+        }
+        Arrays.fill(entities, count, entities.length, null);
+        Arrays.fill(rawEntities, 0, count, null);
+    }
+
+    private void ensureCapacity(int n) {
+        if (n <= entities.length) return;
+        int size = Integer.highestOneBit(n - 1) << 1;
+        entities = new Entity[size];
+        xs = new double[size];
+        ys = new double[size];
+        zs = new double[size];
+        sortKeys = new long[size];
+        rawEntities = new Entity[size];
+        rawXs = new double[size];
+        rawYs = new double[size];
+        rawZs = new double[size];
+    }
+
+    // First index whose sort key is at least the given one
+    private int lowerBound(long key) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortKeys[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static long cellKey(int cellX, int cellZ) {
+        return ((long) (cellX + CELL_OFFSET) << 23) | (cellZ + CELL_OFFSET);
+    }
+
+    public void clear() {
+        world = null;
+        types = null;
+        builtTick = -1;
+        Arrays.fill(entities, null);
+        count = 0;
+        result.clear();
+    }
+}
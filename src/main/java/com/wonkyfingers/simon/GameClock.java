@@ -0,0 +1,254 @@
+package com.wonkyfingers.simon;
+
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+
+/**
+ * Single clock for everything a game schedules. One Bukkit task advances a
+ * hierarchical timing wheel, so all game jobs can be cancelled together, and
+ * game time follows the wall clock: when the server falls below 20 TPS the wheel
+ * catches up by several ticks at once instead of drifting.
+ */
+public class GameClock {
+    private static final long TICK_NANOS = 50_000_000L;
+    // Don't try to catch up more than 5 seconds of missed ticks in one server tick
+    private static final int MAX_CATCH_UP_TICKS = 100;
+
+    // Three levels of 256, 64 and 64 slots cover about 14.5 hours; anything later waits in overflow
+    private static final int LEVEL0_BITS = 8;
+    private static final int LEVEL1_BITS = 6;
+    private static final int LEVEL2_BITS = 6;
+    private static final int LEVEL1_SHIFT = LEVEL0_BITS;
+    private static final int LEVEL2_SHIFT = LEVEL0_BITS + LEVEL1_BITS;
+    private static final long LEVEL0_SPAN = 1L << LEVEL1_SHIFT;
+    private static final long LEVEL1_SPAN = 1L << LEVEL2_SHIFT;
+    private static final long LEVEL2_SPAN = 1L << (LEVEL2_SHIFT + LEVEL2_BITS);
+
+    private final JavaPlugin plugin;
+    private final Job[] level0 = new Job[1 << LEVEL0_BITS];
+    private final Job[] level1 = new Job[1 << LEVEL1_BITS];
+    private final Job[] level2 = new Job[1 << LEVEL2_BITS];
+    private Job overflow;
+
+    private BukkitTask driver;
+    private long startNanos;
+    private long lastAdvanceNanos;
+    private long currentTick;
+    private long targetTick;
+    private int generation; // Bumped on stop so jobs already pulled out of the wheel are dropped
+
+    public static class Job {
+        private final Runnable action;
+        private final long period; // 0 for one-shot jobs
+        private long dueTick;
+        private boolean cancelled;
+        private Job next;
+
+        private Job(Runnable action, long dueTick, long period) {
+            this.action = action;
+            this.dueTick = dueTick;
+            this.period = period;
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    public GameClock(JavaPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Starts a fresh game timeline at tick 0, dropping anything still scheduled.
+     */
+    public void start() {
+        stop();
+        // Snap to the shared wall-clock tick grid so clocks of different games stay in phase
+        startNanos = System.nanoTime() / TICK_NANOS * TICK_NANOS;
+        lastAdvanceNanos = startNanos;
+        currentTick = 0;
+        targetTick = 0;
+
+        driver = new BukkitRunnable() {
+            @Override
+            public void run() {
+                tick();
+            }
+        }.runTaskTimer(plugin, 1L, 1L);
+    }
+
+    /**
+     * Stops the clock and cancels every job scheduled on it.
+     */
+    public void stop() {
+        generation++;
+        if (driver != null) {
+            driver.cancel();
+            driver = null;
+        }
+        cancelAll(level0);
+        cancelAll(level1);
+        cancelAll(level2);
+        overflow = cancelChain(overflow);
+    }
+
+    public boolean isRunning() {
+        return driver != null;
+    }
+
+    public Job schedule(long delayTicks, Runnable action) {
+        Job job = new Job(action, currentTick + delayTicks, 0);
+        insert(job);
+        return job;
+    }
+
+    /**
+     * Runs the action every period. After lag a repeating job runs once and then
+     * skips the periods it missed, so anything that counts time should read
+     * getTick() instead of counting runs.
+     */
+    public Job scheduleRepeating(long delayTicks, long periodTicks, Runnable action) {
+        Job job = new Job(action, currentTick + delayTicks, Math.max(1L, periodTicks));
+        insert(job);
+        return job;
+    }
+
+    /**
+     * Delay that makes a repeating job with the given period run on wall-clock ticks
+     * congruent to phase, whenever this clock was started.
+     */
+    public long getAlignedDelay(long period, long phase) {
+        if (period <= 1) {
+            return 0;
+        }
+        long wallTick = startNanos / TICK_NANOS + currentTick + 1;
+        return Math.floorMod(phase - wallTick, period) + 1;
+    }
+
+    // Game ticks processed so far
+    public long getTick() {
+        return currentTick;
+    }
+
+    /**
+     * Game time in seconds, interpolated within the current tick.
+     */
+    public double getElapsedSeconds() {
+        long sinceAdvance = Math.min(TICK_NANOS, System.nanoTime() - lastAdvanceNanos);
+        return (currentTick * TICK_NANOS + sinceAdvance) / 1_000_000_000.0;
+    }
+
+    private void tick() {
+        long now = System.nanoTime();
+        // Where the game should be by the wall clock; lag shows up as more than one step here
+        targetTick = Math.max(currentTick + 1, (now - startNanos) / TICK_NANOS);
+        int steps = 0;
+        while (currentTick < targetTick && steps < MAX_CATCH_UP_TICKS && driver != null) {
+            advance();
+            steps++;
+        }
+        lastAdvanceNanos = now;
+    }
+
+    private void advance() {
+        currentTick++;
+
+        // Pull jobs down from the coarser levels as their window comes up
+        if ((currentTick & (LEVEL0_SPAN - 1)) == 0) {
+            if ((currentTick & (LEVEL1_SPAN - 1)) == 0) {
+                if ((currentTick & (LEVEL2_SPAN - 1)) == 0) {
+                    Job chain = overflow;
+                    overflow = null;
+                    reinsert(chain);
+                }
+                int slot2 = (int) ((currentTick >>> LEVEL2_SHIFT) & (level2.length - 1));
+                Job chain = level2[slot2];
+                level2[slot2] = null;
+                reinsert(chain);
+            }
+            int slot1 = (int) ((currentTick >>> LEVEL1_SHIFT) & (level1.length - 1));
+            Job chain = level1[slot1];
+            level1[slot1] = null;
+            reinsert(chain);
+        }
+
+        int slot0 = (int) (currentTick & (level0.length - 1));
+        Job job = level0[slot0];
+        level0[slot0] = null;
+        int startGeneration = generation;
+        while (job != null) {
+            Job next = job.next;
+            job.next = null;
+            // A job may have stopped the clock, which cancels everything after it too
+            if (!job.cancelled && generation == startGeneration) {
+                job.action.run();
+                if (job.period > 0 && !job.cancelled && generation == startGeneration) {
+                    // Repeating jobs skip the periods they missed instead of running back to back
+                    job.dueTick += job.period;
+                    while (job.dueTick <= targetTick) {
+                        job.dueTick += job.period;
+                    }
+                    insert(job);
+                }
+            }
+            job = next;
+        }
+    }
+
+    private void reinsert(Job chain) {
+        while (chain != null) {
+            Job next = chain.next;
+            chain.next = null;
+            if (!chain.cancelled) {
+                insert(chain);
+            }
+            chain = next;
+        }
+    }
+
+    private void insert(Job job) {
+        // Anything due now or earlier runs on the next tick
+        if (job.dueTick <= currentTick) {
+            job.dueTick = currentTick + 1;
+        }
+        long delta = job.dueTick - currentTick;
+        if (delta < LEVEL0_SPAN) {
+            int slot = (int) (job.dueTick & (level0.length - 1));
+            job.next = level0[slot];
+            level0[slot] = job;
+        } else if (delta < LEVEL1_SPAN) {
+            int slot = (int) ((job.dueTick >>> LEVEL1_SHIFT) & (level1.length - 1));
+            job.next = level1[slot];
+            level1[slot] = job;
+        } else if (delta < LEVEL2_SPAN) {
+            int slot = (int) ((job.dueTick >>> LEVEL2_SHIFT) & (level2.length - 1));
+            job.next = level2[slot];
+            level2[slot] = job;
+        } else {
+            job.next = overflow;
+            overflow = job;
+        }
+    }
+
+    private static void cancelAll(Job[] slots) {
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = cancelChain(slots[i]);
+        }
+    }
+
+    private static Job cancelChain(Job chain) {
+        while (chain != null) {
+            Job next = chain.next;
+            chain.cancelled = true;
+            chain.next = null;
+            chain = next;
+        }
+        return null;
+    }
+}
@@ -5,17 +5,42 @@ import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class GameCommands implements CommandExecutor {
-    private final Game_Setup gameSetup;
-    private final TaskManager taskManager;
+    private static final String DEFAULT_ARENA = "default";
+
+    private final Simon plugin;
+    private final ArenaManager arenaManager;
 
-    public GameCommands(Game_Setup gameSetup, TaskManager taskManager) {
-        this.gameSetup = gameSetup;
-        this.taskManager = taskManager;
+    public GameCommands(Simon plugin, ArenaManager arenaManager) {
+        this.plugin = plugin;
+        this.arenaManager = arenaManager;
     }
 
     @Override
     public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        // Reloading works from the console too
+        if (command.getName().equalsIgnoreCase("reloadtasks")) {
+            if (!sender.isOp()) {
+                sender.sendMessage("§cYou don't have permission to use this command!");
+                return true;
+            }
+            sender.sendMessage("§aReloading tasks.yml...");
+            plugin.reloadTaskCatalog(sender::sendMessage);
+            return true;
+        }
+
+        if (command.getName().equalsIgnoreCase("simonstats")) {
+            if (!sender.isOp()) {
+                sender.sendMessage("§cYou don't have permission to use this command!");
+                return true;
+            }
+            sendStats(sender, args.length > 0 ? args[0].toLowerCase() : null);
+            return true;
+        }
+
         if (!(sender instanceof Player)) {
             sender.sendMessage("§cThis command can only be executed by players!");
             return true;
@@ -27,20 +52,49 @@ public class GameCommands implements CommandExecutor {
             return true;
         }
 
+        String arenaId = args.length > 0 ? args[0].toLowerCase() : DEFAULT_ARENA;
+
         if (command.getName().equalsIgnoreCase("startgame")) {
-            gameSetup.startGame(player.getWorld(), player.getLocation());
-            taskManager.startTasks();
-            player.sendMessage("§aStarting game with Simon Says tasks!");
+            // Everyone in the operator's world who isn't already playing elsewhere joins
+            List<Player> players = new ArrayList<>(player.getWorld().getPlayers());
+            if (args.length > 1) {
+                player.sendMessage("§aPreparing arena §e" + arenaId + "§a from template §e" + args[1] + "§a...");
+                arenaManager.startInstancedArena(arenaId, args[1], players, player::sendMessage);
+                return true;
+            }
+            arenaManager.startArena(arenaId, player.getLocation(), players);
+            player.sendMessage("§aStarting game with Simon Says tasks in arena §e" + arenaId + "§a!");
             return true;
         }
 
         if (command.getName().equalsIgnoreCase("stopgame")) {
-            gameSetup.stopGame();
-            taskManager.cleanup();
-            player.sendMessage("§cGame stopped!");
+            if (arenaManager.stopArena(arenaId)) {
+                player.sendMessage("§cGame stopped in arena §e" + arenaId + "§c!");
+            } else {
+                player.sendMessage("§cNo game is running in arena §e" + arenaId + "§c.");
+            }
             return true;
         }
 
         return false;
     }
-}
\ No newline at end of file
+
+    // Debug counters per running arena, or for one arena
+    private void sendStats(CommandSender sender, String arenaId) {
+        int shown = 0;
+        for (Arena arena : arenaManager.getArenas()) {
+            if (!arena.isRunning() || (arenaId != null && !arena.getId().equals(arenaId))) continue;
+            Game_Setup setup = arena.getGameSetup();
+            sender.sendMessage(String.format("§e%s§7: tick %d, zone radius %.1f, %d players, border arrays allocated %d",
+                    arena.getId(), arena.getClock().getTick(), setup.getCurrentRadius(),
+                    arena.getPlayers().size(), setup.getBorderAllocations()));
+            shown++;
+        }
+        if (shown == 0) {
+            sender.sendMessage(arenaId == null ? "§cNo game is running." : "§cNo game is running in arena §e" + arenaId + "§c.");
+            return;
+        }
+        sender.sendMessage(String.format("§7Border trig tables cached: %d (%d arrays allocated)",
+                BorderGeometry.getTrigTableCount(), BorderGeometry.getTrigAllocations()));
+    }
+}
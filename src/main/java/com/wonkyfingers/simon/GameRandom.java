@@ -0,0 +1,65 @@
+package com.wonkyfingers.simon;
+
+import java.util.SplittableRandom;
+
+/**
+ * All the randomness of one game, derived from a single seed. Every subsystem
+ * gets its own stream, split off in a fixed order, so one of them drawing more
+ * or less never shifts another's decisions. Free of Bukkit so ReplayTool can
+ * rebuild a game's decisions offline.
+ */
+public final class GameRandom {
+    public static final int PUNISHMENT_EFFECTS = 5;
+
+    private final long seed;
+    private final SplittableRandom deck;        // Task draws and contradictory picks
+    private final SplittableRandom rules;       // Simon says and contradictory coin flips
+    private final SplittableRandom punishments; // Effects given to players who fail
+    private final SplittableRandom cosmetic;    // Message wording and small rewards
+
+    public GameRandom(long seed) {
+        this.seed = seed;
+        SplittableRandom root = new SplittableRandom(seed);
+        // Never reorder these; recorded games depend on it
+        this.deck = root.split();
+        this.rules = root.split();
+        this.punishments = root.split();
+        this.cosmetic = root.split();
+    }
+
+    public static long newSeed() {
+        return new SplittableRandom().nextLong();
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public SplittableRandom deck() {
+        return deck;
+    }
+
+    public SplittableRandom cosmetic() {
+        return cosmetic;
+    }
+
+    // 60% chance of being a real Simon Says command
+    public boolean nextSimonSays() {
+        return rules.nextDouble() < 0.6;
+    }
+
+    // 30% chance of adding a contradictory command
+    public boolean nextContradictory() {
+        return rules.nextDouble() < 0.3;
+    }
+
+    // One to three different punishment effects, as a bit per effect
+    public int nextPunishment() {
+        int count = punishments.nextInt(3) + 1;
+        int mask = 0;
+        while (Integer.bitCount(mask) < count) {
+            mask |= 1 << punishments.nextInt(PUNISHMENT_EFFECTS);
+        }
+        return mask;
+    }
+}
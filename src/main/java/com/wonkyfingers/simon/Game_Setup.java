@@ -6,26 +6,30 @@ import org.bukkit.World;
 import org.bukkit.Color;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.java.JavaPlugin;
-import org.bukkit.scheduler.BukkitRunnable;
-import org.bukkit.scheduler.BukkitTask;
+
+import java.util.Locale;
 
 public class Game_Setup {
     private final JavaPlugin plugin;
+    private final Arena arena;
+    private final GameClock clock;
     private GameConfig config;
-    private BukkitTask borderTask;
-    private BukkitTask damageTask;
-    private BukkitTask timerTask;
+    private GameClock.Job borderTask;
+    private GameClock.Job damageTask;
+    private GameClock.Job timerTask;
     private Location centerLocation;
     private World gameWorld;
     private boolean isGameRunning = false;
-    private int timeRemaining; // in seconds
-    private double currentBorderRadius;
     private boolean showParticles = true;
-    private int currentPhase = 0;
-    private boolean isCurrentlyShrinking = false;
-    private double targetBorderRadius;
-    private int shrinkTimeRemaining = 0; // seconds remaining in current shrink
-    private double shrinkSpeedPerSecond; // New variable for constant shrink speed
+    private ZoneModel zoneModel;
+    // What has already been announced, so each message goes out once
+    private int announcedPhase = -1;
+    private boolean announcedShrinking = false;
+    private int announcedCountdown = -1;
+    private BorderRenderer borderRenderer;
+    private ClientBorder clientBorder; // Only used in CLIENT border mode
+    private final ZoneKernel zoneKernel = new ZoneKernel();
+    private final DamageScheduler damageScheduler = new DamageScheduler();
 
     // Phase timing configuration (in seconds)
     // 20 minute game times
@@ -33,6 +37,14 @@ public class Game_Setup {
     private static final int[] PHASE_SHRINK_TIMES = {90, 60, 45, 30, 20, 15}; // Time taken to shrink
     private static final double[] PHASE_SIZES = {1.0, 0.7, 0.4, 0.2, 0.1, 0.05, 0}; // Size multiplier for each phase
 
+    // How the particle border is sent to clients
+    public enum BorderMode {
+        WORLD,      // Every particle to every player in the world
+        PER_PLAYER, // Each player only gets the part of the ring near them
+        DITHERED,   // Interleaved slices of the ring every tick, capped by a particle budget
+        CLIENT      // Per-player virtual world border, drawn and animated by the client
+    }
+
     public static class GameConfig {
         private final int borderDiameter;
         private final int particlesPerCircle;
@@ -41,6 +53,16 @@ public class Game_Setup {
         private final long borderUpdateTicks;
         private final long damageCheckTicks;
         private final Color borderColor;
+        private final BorderMode borderMode;
+        private final double borderViewDistance;
+        private final double borderViewHeight;
+        private final double borderWallHeight;
+        private final int borderParticleBudget;
+        private final double maxPlayerSpeed;
+        private final long taskBudgetMicros;
+        private final boolean parallelTaskEvaluation;
+        private final int broadcastBatchSize;
+        private final Particle.DustTransition dustOptions; // Shared by every border particle
 
         public GameConfig(Builder builder) {
             this.borderDiameter = builder.borderDiameter;
@@ -50,6 +72,52 @@ public class Game_Setup {
             this.borderUpdateTicks = builder.borderUpdateTicks;
             this.damageCheckTicks = builder.damageCheckTicks;
             this.borderColor = builder.borderColor;
+            this.borderMode = builder.borderMode;
+            this.borderViewDistance = builder.borderViewDistance;
+            this.borderViewHeight = builder.borderViewHeight;
+            this.borderWallHeight = builder.borderWallHeight;
+            this.borderParticleBudget = builder.borderParticleBudget;
+            this.maxPlayerSpeed = builder.maxPlayerSpeed;
+            this.taskBudgetMicros = builder.taskBudgetMicros;
+            this.parallelTaskEvaluation = builder.parallelTaskEvaluation;
+            this.broadcastBatchSize = builder.broadcastBatchSize;
+            this.dustOptions = new Particle.DustTransition(borderColor, borderColor, 1.0f);
+        }
+
+        public BorderMode getBorderMode() {
+            return borderMode;
+        }
+
+        public double getBorderViewDistance() {
+            return borderViewDistance;
+        }
+
+        public double getBorderViewHeight() {
+            return borderViewHeight;
+        }
+
+        public double getBorderWallHeight() {
+            return borderWallHeight;
+        }
+
+        public int getBorderParticleBudget() {
+            return borderParticleBudget;
+        }
+
+        public long getTaskBudgetMicros() {
+            return taskBudgetMicros;
+        }
+
+        public boolean isParallelTaskEvaluation() {
+            return parallelTaskEvaluation;
+        }
+
+        public int getBroadcastBatchSize() {
+            return broadcastBatchSize;
+        }
+
+        public Particle.DustTransition getDustOptions() {
+            return dustOptions;
         }
 
         public static class Builder {
@@ -60,6 +128,15 @@ public class Game_Setup {
             private long borderUpdateTicks = 2L;
             private long damageCheckTicks = 10L;
             private Color borderColor = Color.RED;
+            private BorderMode borderMode = BorderMode.PER_PLAYER;
+            private double borderViewDistance = 48.0;
+            private double borderViewHeight = 32.0;
+            private double borderWallHeight = 24.0; // Blocks of wall above the terrain surface
+            private int borderParticleBudget = 256; // Particles per tick in DITHERED mode
+            private double maxPlayerSpeed = 4.0; // Blocks per tick; rocket-boosted elytra and riptide peak around 3.5
+            private long taskBudgetMicros = 1000; // Time per tick for checking moderate and expensive tasks
+            private boolean parallelTaskEvaluation = true; // Check snapshot tasks off the main thread
+            private int broadcastBatchSize = 40; // Players sent a task announcement per tick
 
             public Builder borderDiameter(int diameter) {
                 this.borderDiameter = diameter;
@@ -96,14 +173,61 @@ public class Game_Setup {
                 return this;
             }
 
+            public Builder borderMode(BorderMode mode) {
+                this.borderMode = mode;
+                return this;
+            }
+
+            public Builder borderViewDistance(double distance) {
+                this.borderViewDistance = distance;
+                return this;
+            }
+
+            public Builder borderViewHeight(double height) {
+                this.borderViewHeight = height;
+                return this;
+            }
+
+            public Builder borderWallHeight(double height) {
+                this.borderWallHeight = height;
+                return this;
+            }
+
+            public Builder borderParticleBudget(int particles) {
+                this.borderParticleBudget = particles;
+                return this;
+            }
+
+            public Builder maxPlayerSpeed(double blocksPerTick) {
+                this.maxPlayerSpeed = blocksPerTick;
+                return this;
+            }
+
+            public Builder taskBudgetMicros(long micros) {
+                this.taskBudgetMicros = micros;
+                return this;
+            }
+
+            public Builder parallelTaskEvaluation(boolean parallel) {
+                this.parallelTaskEvaluation = parallel;
+                return this;
+            }
+
+            public Builder broadcastBatchSize(int players) {
+                this.broadcastBatchSize = players;
+                return this;
+            }
+
             public GameConfig build() {
                 return new GameConfig(this);
             }
         }
     }
 
-    public Game_Setup(JavaPlugin plugin) {
+    public Game_Setup(JavaPlugin plugin, Arena arena) {
         this.plugin = plugin;
+        this.arena = arena;
+        this.clock = arena.getClock();
     }
 
     public void startGame(World world, Location center) {
@@ -117,65 +241,121 @@ public class Game_Setup {
                 .damageAmount(2.0)
                 .wallSections(16)
                 .borderColor(Color.RED)
+                .borderMode(readBorderMode())
+                .borderParticleBudget(plugin.getConfig().getInt("border-particle-budget", 256))
                 .build();
 
         isGameRunning = true;
         showParticles = true;
-        currentPhase = 0;
-        isCurrentlyShrinking = false;
+        announcedPhase = -1;
+        announcedShrinking = false;
+        announcedCountdown = -1;
+        zoneModel = new ZoneModel(config.borderDiameter / 2.0, PHASE_WAIT_TIMES, PHASE_SHRINK_TIMES, PHASE_SIZES);
+        clock.start();
         initialize(world, center);
 
-        startNextPhase();
+        updatePhase();
 
         broadcastMessage("§a§lGame started! Get ready for zone movement!");
     }
 
-    private void startNextPhase() {
-        if (currentPhase >= PHASE_WAIT_TIMES.length) {
-            endGame();
-            return;
+    // The border-mode setting from config.yml, PER_PLAYER if it is missing or unknown
+    private BorderMode readBorderMode() {
+        String value = plugin.getConfig().getString("border-mode", BorderMode.PER_PLAYER.name());
+        try {
+            return BorderMode.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            plugin.getLogger().warning("Unknown border-mode '" + value + "' in config.yml, using PER_PLAYER");
+            return BorderMode.PER_PLAYER;
         }
+    }
+
+    // Seconds since the game started, at sub-tick precision
+    public double getElapsedSeconds() {
+        return clock.getElapsedSeconds();
+    }
+
+    public double getCurrentRadius() {
+        return zoneModel.radiusAt(getElapsedSeconds());
+    }
+
+    public GameConfig getConfig() {
+        return config;
+    }
+
+    public World getGameWorld() {
+        return gameWorld;
+    }
+
+    public ZoneModel getZoneModel() {
+        return zoneModel;
+    }
 
-        // Calculate next border size
-        targetBorderRadius = (config.borderDiameter / 2.0) * PHASE_SIZES[currentPhase + 1];
+    // Announces whatever the zone model says changed since the last call
+    private void updatePhase() {
+        double now = getElapsedSeconds();
+        int phase = zoneModel.phaseAt(now);
+
+        if (phase != announcedPhase) {
+            announcedPhase = phase;
+            announcedShrinking = false;
+            announcedCountdown = -1;
+            arena.getReplay().phase(clock.getTick(), phase);
+            if (phase >= zoneModel.getPhaseCount()) {
+                endGame();
+                return;
+            }
+            startNextPhase(phase, now);
+        }
 
-        // Start wait period
-        isCurrentlyShrinking = false;
-        timeRemaining = PHASE_WAIT_TIMES[currentPhase];
+        if (zoneModel.isShrinkingAt(now)) {
+            if (!announcedShrinking) {
+                announcedShrinking = true;
+                startShrinking(phase, now);
+            }
+        } else {
+            int secondsLeft = (int) Math.ceil(zoneModel.getShrinkStart(phase) - now);
+            if (secondsLeft <= 30 && secondsLeft % 10 == 0 && secondsLeft != announcedCountdown) {
+                announcedCountdown = secondsLeft;
+                broadcastMessage("§e§lZone shrinks in " + secondsLeft + " seconds!");
+            }
+        }
+    }
 
-        // Calculate constant shrink speed for this phase
-        double totalDistanceToShrink = currentBorderRadius - targetBorderRadius;
-        shrinkSpeedPerSecond = totalDistanceToShrink / PHASE_SHRINK_TIMES[currentPhase];
+    private void startNextPhase(int phase, double now) {
+        if (clientBorder != null) {
+            clientBorder.setRadius(zoneModel.radiusAt(now));
+        }
 
         // Announce next zone
+        int timeRemaining = (int) Math.ceil(zoneModel.getShrinkStart(phase) - now);
         String message = String.format("§e§lZone will start shrinking in %d seconds! Next safe zone size: %.1f blocks",
-                timeRemaining, targetBorderRadius * 2);
+                timeRemaining, zoneModel.getTargetRadius(phase) * 2);
         broadcastMessage(message);
     }
 
-    private void startShrinking() {
-        isCurrentlyShrinking = true;
-        shrinkTimeRemaining = PHASE_SHRINK_TIMES[currentPhase];
+    private void startShrinking(int phase, double now) {
+        if (clientBorder != null) {
+            long shrinkSeconds = Math.max(1L, Math.round(zoneModel.getShrinkEnd(phase) - now));
+            clientBorder.shrinkTo(zoneModel.radiusAt(now), zoneModel.getTargetRadius(phase), shrinkSeconds);
+        }
 
         String message = "§c§lZone is now shrinking!";
         broadcastMessage(message);
     }
 
-    private void updateBorderSize() {
-        if (!isCurrentlyShrinking) return;
-
-        // Move at constant speed (adjusted for tick rate)
-        double moveAmount = shrinkSpeedPerSecond / 20; // Convert per-second speed to per-tick speed
-        currentBorderRadius = Math.max(targetBorderRadius, currentBorderRadius - moveAmount);
-    }
-
     private void initialize(World world, Location center) {
         this.gameWorld = world;
         this.centerLocation = center;
-        this.currentBorderRadius = config.borderDiameter / 2.0;
+        this.borderRenderer = new BorderRenderer(plugin, world, center, config);
 
         resetWorldBorder();
-        startBorderVisualization();
+        if (config.borderMode == BorderMode.CLIENT) {
+            clientBorder = new ClientBorder(world, center.getX(), center.getZ(), getCurrentRadius());
+            clientBorder.syncPlayers(arena.getPlayers());
+        } else {
+            startBorderVisualization();
+        }
         startDamageCheck();
         startGameTimer();
     }
@@ -185,16 +365,28 @@ public class Game_Setup {
             borderTask.cancel();
         }
 
-        borderTask = new BukkitRunnable() {
-            @Override
-            public void run() {
-                if (!isGameRunning || !showParticles) {
-                    this.cancel();
-                    return;
-                }
-                drawParticleBorder();
+        long period = getBorderPeriod();
+        borderTask = clock.scheduleRepeating(arena.getStaggerDelay(period), period, () -> {
+            if (!isGameRunning || !showParticles) {
+                borderTask.cancel();
+                return;
             }
-        }.runTaskTimer(plugin, 0L, config.borderUpdateTicks);
+            drawParticleBorder();
+        });
+    }
+
+    private long getBorderPeriod() {
+        // Dithered mode spreads one full redraw over several ticks, so it has to run every tick
+        if (config.borderMode == BorderMode.DITHERED) return 1L;
+        // Stretched so every running arena gets a tick of its own
+        return Math.max(config.borderUpdateTicks, arena.getStaggerSlots());
+    }
+
+    // Re-aligns the border pass after the arena's stagger slots changed
+    public void restagger() {
+        if (isGameRunning && showParticles && borderTask != null && !borderTask.isCancelled()) {
+            startBorderVisualization();
+        }
     }
 
     private void startDamageCheck() {
@@ -202,16 +394,14 @@ public class Game_Setup {
             damageTask.cancel();
         }
 
-        damageTask = new BukkitRunnable() {
-            @Override
-            public void run() {
-                if (!isGameRunning) {
-                    this.cancel();
-                    return;
-                }
-                checkAllPlayersLocation();
+        // Every tick; the damage scheduler decides who actually gets checked
+        damageTask = clock.scheduleRepeating(0L, 1L, () -> {
+            if (!isGameRunning) {
+                damageTask.cancel();
+                return;
             }
-        }.runTaskTimer(plugin, 0L, config.damageCheckTicks);
+            checkAllPlayersLocation();
+        });
     }
 
     private void startGameTimer() {
@@ -219,107 +409,58 @@ public class Game_Setup {
             timerTask.cancel();
         }
 
-        timerTask = new BukkitRunnable() {
-            @Override
-            public void run() {
-                if (!isGameRunning) {
-                    this.cancel();
-                    return;
-                }
-
-                timeRemaining--;
-
-                if (isCurrentlyShrinking) {
-                    shrinkTimeRemaining--;
-                    updateBorderSize();
-
-                    if (shrinkTimeRemaining <= 0) {
-                        currentPhase++;
-                        startNextPhase();
-                    }
-                } else {
-                    if (timeRemaining <= 0) {
-                        startShrinking();
-                    } else if (timeRemaining <= 30 && timeRemaining % 10 == 0) {
-                        broadcastMessage("§e§lZone shrinks in " + timeRemaining + " seconds!");
-                    }
-                }
+        timerTask = clock.scheduleRepeating(arena.getStaggerDelay(20L), 20L, () -> { // Run every second
+            if (!isGameRunning) {
+                timerTask.cancel();
+                return;
+            }
+
+            if (clientBorder != null) {
+                clientBorder.syncPlayers(arena.getPlayers());
             }
-        }.runTaskTimer(plugin, 0L, 20L); // Run every second
+
+            updatePhase();
+        });
     }
 
     private void drawParticleBorder() {
         if (!showParticles) return;
 
-        int maxHeight = gameWorld.getMaxHeight();
-
-        // Calculate the circumference of the current circle
-        double circumference = 2 * Math.PI * currentBorderRadius;
-
-        // Adjust number of particles based on circumference
-        // Using a ratio of 1 particle per block of circumference
-        int adjustedParticleCount = (int) Math.max(50, Math.ceil(circumference));
-
-        // Calculate height sections based on circumference
-        int adjustedWallSections = (int) Math.max(8, Math.ceil(circumference / 20));
-        int heightPerSection = maxHeight / adjustedWallSections;
-
-        for (int i = 0; i < adjustedParticleCount; i++) {
-            double angle = 2 * Math.PI * i / adjustedParticleCount;
-            double x = centerLocation.getX() + (currentBorderRadius * Math.cos(angle));
-            double z = centerLocation.getZ() + (currentBorderRadius * Math.sin(angle));
-
-            for (int h = 0; h < adjustedWallSections; h++) {
-                Location particleLoc = new Location(gameWorld, x, h * heightPerSection, z);
-                spawnBorderParticle(particleLoc, heightPerSection);
-            }
-        }
+        borderRenderer.render(getCurrentRadius());
     }
 
-    private void spawnBorderParticle(Location location, int height) {
-        gameWorld.spawnParticle(
-                Particle.DUST_COLOR_TRANSITION,
-                location,
-                height,
-                0, height, 0,
-                new Particle.DustTransition(config.borderColor, config.borderColor, 1.0f)
-        );
+    // Arrays allocated by the border cache so far; stays flat while the radius is steady
+    public long getBorderAllocations() {
+        return borderRenderer == null ? 0 : borderRenderer.getAllocations();
     }
 
     private void checkAllPlayersLocation() {
-        for (Player player : gameWorld.getPlayers()) {
-            checkPlayerLocation(player);
+        long damageTick = clock.getTick();
+        double now = getElapsedSeconds();
+        zoneKernel.load(damageScheduler.collectDue(arena.getPlayers(), gameWorld, damageTick));
+        int flagged = zoneKernel.evaluate(centerLocation.getX(), centerLocation.getZ(), zoneModel.radiusAt(now));
+        for (int i = 0; i < flagged; i++) {
+            zoneKernel.getFlagged(i).damage(config.damageAmount);
         }
-    }
-
-    private void checkPlayerLocation(Player player) {
-        Location playerLoc = player.getLocation();
-        Location flatPlayerLoc = getFlatLocation(playerLoc);
-        Location flatCenter = getFlatLocation(centerLocation);
-        double distance = flatPlayerLoc.distance(flatCenter);
 
-        // Skip damage if player is exactly at the center block
-        if (Math.floor(playerLoc.getX()) == Math.floor(centerLocation.getX()) &&
-                Math.floor(playerLoc.getZ()) == Math.floor(centerLocation.getZ())) {
-            return;
-        }
-
-        if (distance > currentBorderRadius + 0.5) {
-            player.damage(config.damageAmount);
+        // Worst case the player runs straight at the border while it shrinks toward them. The
+        // current phase's shrink speed covers a shrink that starts before the next check.
+        double shrinkPerTick = zoneModel.getShrinkSpeed(zoneModel.phaseAt(now)) / 20;
+        double closingPerTick = config.maxPlayerSpeed + Math.max(0, shrinkPerTick);
+        for (int i = 0; i < zoneKernel.getCount(); i++) {
+            damageScheduler.schedule(zoneKernel.getPlayer(i), damageTick, zoneKernel.getMargin(i),
+                    closingPerTick, config.damageCheckTicks);
         }
+        zoneKernel.release();
     }
 
-    private Location getFlatLocation(Location location) {
-        return new Location(
-                location.getWorld(),
-                location.getX(),
-                centerLocation.getY(),
-                location.getZ()
-        );
+    // Forces a zone check on the next tick, e.g. after the player teleported
+    public void invalidateDamageCheck(Player player) {
+        damageScheduler.invalidate(player.getUniqueId());
     }
 
     private void broadcastMessage(String message) {
-        for (Player player : gameWorld.getPlayers()) {
+        for (Player player : arena.getPlayers()) {
             player.sendMessage(message);
         }
     }
@@ -335,6 +476,10 @@ public class Game_Setup {
         timerTask.cancel();
     }
 
+    public boolean isGameRunning() {
+        return isGameRunning;
+    }
+
     public void stopGame() {
         if (isGameRunning) {
             broadcastMessage("§c§lGame stopped by administrator!");
@@ -353,9 +498,19 @@ public class Game_Setup {
         if (timerTask != null) {
             timerTask.cancel();
         }
+        // Also takes down every task job scheduled for this game
+        clock.stop();
         if (gameWorld != null) {
             gameWorld.getWorldBorder().setSize(60000000);
         }
+        if (borderRenderer != null) {
+            borderRenderer.clear();
+        }
+        if (clientBorder != null) {
+            clientBorder.clear();
+            clientBorder = null;
+        }
+        damageScheduler.clear();
         showParticles = false;
         isGameRunning = false;
     }
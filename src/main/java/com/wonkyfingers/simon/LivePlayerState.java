@@ -0,0 +1,230 @@
+package com.wonkyfingers.simon;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+import org.bukkit.potion.PotionEffect;
+import org.bukkit.potion.PotionEffectType;
+
+/**
+ * Reads the state of the bound player straight from the server, for checks that
+ * run inline on the main thread. Only what a check asks for is read, so a check
+ * that fails on its first condition costs one getter instead of a full
+ * PlayerSnapshot. One instance is bound to each player in turn.
+ */
+public final class LivePlayerState implements PlayerState {
+    private Player player;
+
+    // Points the view at the player, or at nothing so it doesn't keep them alive
+    public LivePlayerState bind(Player player) {
+        this.player = player;
+        return this;
+    }
+
+    @Override
+    public World.Environment getEnvironment() {
+        return player.getWorld().getEnvironment();
+    }
+
+    @Override
+    public boolean hasStorm() {
+        return player.getWorld().hasStorm();
+    }
+
+    @Override
+    public double getX() {
+        return player.getLocation().getX();
+    }
+
+    @Override
+    public double getY() {
+        return player.getLocation().getY();
+    }
+
+    @Override
+    public double getZ() {
+        return player.getLocation().getZ();
+    }
+
+    @Override
+    public float getYaw() {
+        return player.getLocation().getYaw();
+    }
+
+    @Override
+    public float getPitch() {
+        return player.getLocation().getPitch();
+    }
+
+    @Override
+    public boolean isOnGround() {
+        return player.isOnGround();
+    }
+
+    @Override
+    public boolean isSneaking() {
+        return player.isSneaking();
+    }
+
+    @Override
+    public boolean isSprinting() {
+        return player.isSprinting();
+    }
+
+    @Override
+    public boolean isSwimming() {
+        return player.isSwimming();
+    }
+
+    @Override
+    public boolean isGliding() {
+        return player.isGliding();
+    }
+
+    @Override
+    public boolean isBlocking() {
+        return player.isBlocking();
+    }
+
+    @Override
+    public double getVelocityY() {
+        return player.getVelocity().getY();
+    }
+
+    @Override
+    public double getSpeed() {
+        return player.getVelocity().length();
+    }
+
+    @Override
+    public int getFoodLevel() {
+        return player.getFoodLevel();
+    }
+
+    @Override
+    public float getSaturation() {
+        return player.getSaturation();
+    }
+
+    @Override
+    public Material getMainHand() {
+        return player.getInventory().getItemInMainHand().getType();
+    }
+
+    @Override
+    public int getMainHandEnchantments() {
+        return player.getInventory().getItemInMainHand().getEnchantments().size();
+    }
+
+    @Override
+    public Material getHotbar(int slot) {
+        ItemStack item = player.getInventory().getItem(slot);
+        return item == null ? null : item.getType();
+    }
+
+    @Override
+    public Material getArmor(int slot) {
+        ItemStack item = armorPiece(slot);
+        return item == null ? null : item.getType();
+    }
+
+    @Override
+    public int getArmorEnchantments(int slot) {
+        ItemStack item = armorPiece(slot);
+        return item == null ? 0 : item.getEnchantments().size();
+    }
+
+    // Same order as getArmorContents(), without copying the whole array
+    private ItemStack armorPiece(int slot) {
+        PlayerInventory inv = player.getInventory();
+        switch (slot) {
+            case 0:
+                return inv.getBoots();
+            case 1:
+                return inv.getLeggings();
+            case 2:
+                return inv.getChestplate();
+            default:
+                return inv.getHelmet();
+        }
+    }
+
+    @Override
+    public Material getHelmet() {
+        return getArmor(3);
+    }
+
+    @Override
+    public boolean hasFeatherFallingBoots() {
+        ItemStack boots = player.getInventory().getBoots();
+        return boots != null && boots.getEnchantments().containsKey(Enchantment.FEATHER_FALLING);
+    }
+
+    @Override
+    public boolean hasProtectionHelmet() {
+        ItemStack helmet = player.getInventory().getHelmet();
+        return helmet != null && helmet.getEnchantments().containsKey(Enchantment.PROTECTION);
+    }
+
+    @Override
+    public boolean hasItem(Material material, int amount) {
+        return player.getInventory().contains(material, amount);
+    }
+
+    @Override
+    public boolean hasItem(Material material) {
+        return player.getInventory().contains(material);
+    }
+
+    @Override
+    public int getEffectCount() {
+        return player.getActivePotionEffects().size();
+    }
+
+    @Override
+    public boolean hasEffect(PotionEffectType type) {
+        return player.hasPotionEffect(type);
+    }
+
+    @Override
+    public int getEffectAmplifier(PotionEffectType type) {
+        PotionEffect effect = player.getPotionEffect(type);
+        return effect == null ? -1 : effect.getAmplifier();
+    }
+
+    @Override
+    public boolean hasChunk() {
+        return true;
+    }
+
+    /**
+     * Block type at an offset from the player's feet. Blocks in chunks that
+     * aren't loaded read as null instead of loading them.
+     */
+    @Override
+    public Material getBlockType(int dx, int dy, int dz) {
+        Location loc = player.getLocation();
+        World world = player.getWorld();
+        int bx = loc.getBlockX() + dx;
+        int by = loc.getBlockY() + dy;
+        int bz = loc.getBlockZ() + dz;
+        if (by < world.getMinHeight()) return Material.VOID_AIR;
+        if (by >= world.getMaxHeight()) return Material.AIR;
+        if (!world.isChunkLoaded(bx >> 4, bz >> 4)) return null;
+        return world.getBlockAt(bx, by, bz).getType();
+    }
+
+    @Override
+    public int getSkyLight() {
+        Location loc = player.getLocation();
+        World world = player.getWorld();
+        int by = loc.getBlockY();
+        if (by < world.getMinHeight()) return 0;
+        if (by >= world.getMaxHeight()) return 15;
+        return world.getBlockAt(loc.getBlockX(), by, loc.getBlockZ()).getLightFromSky();
+    }
+}
@@ -0,0 +1,185 @@
+package com.wonkyfingers.simon;
+
+import java.util.Arrays;
+
+/**
+ * The last few seconds of every participant's movement, for tasks that are
+ * about motion over time rather than a single instant. Samples live in flat
+ * primitive ring buffers indexed by participant slot, one sample per tick, so
+ * recording a move allocates nothing and memory is fixed per player.
+ */
+public class MotionHistory {
+    public static final int CAPACITY = 64; // Samples per player, a little over three seconds
+
+    // Sample flags
+    public static final int ON_GROUND = 1;
+    public static final int IN_WATER = 2;
+    public static final int GLIDING = 4;
+    public static final int SWIMMING = 8;
+
+    private long[] ticks = new long[0];
+    private double[] xs = new double[0];
+    private double[] ys = new double[0];
+    private double[] zs = new double[0];
+    private float[] yaws = new float[0];
+    private float[] pitches = new float[0];
+    private float[] speeds = new float[0]; // Blocks per tick since the previous sample
+    private byte[] flags = new byte[0];
+    private int[] heads = new int[0];  // Next write position per slot
+    private int[] sizes = new int[0];
+
+    /**
+     * Forgets all samples and makes room for the given number of slots.
+     */
+    public void reset(int slotCount) {
+        int length = slotCount * CAPACITY;
+        if (ticks.length < length) {
+            ticks = new long[length];
+            xs = new double[length];
+            ys = new double[length];
+            zs = new double[length];
+            yaws = new float[length];
+            pitches = new float[length];
+            speeds = new float[length];
+            flags = new byte[length];
+            heads = new int[slotCount];
+            sizes = new int[slotCount];
+        } else {
+            Arrays.fill(heads, 0);
+            Arrays.fill(sizes, 0);
+        }
+    }
+
+    public void record(int slot, long tick, double x, double y, double z, float yaw, float pitch, int sampleFlags) {
+        if (slot < 0 || slot >= heads.length) return;
+        int base = slot * CAPACITY;
+        int size = sizes[slot];
+
+        float speed = 0;
+        if (size > 0) {
+            int last = base + (heads[slot] + CAPACITY - 1) % CAPACITY;
+            if (ticks[last] == tick) {
+                // Several moves in one tick: keep the newest in the same sample
+                heads[slot] = (heads[slot] + CAPACITY - 1) % CAPACITY;
+                size--;
+                last = base + (heads[slot] + CAPACITY - 1) % CAPACITY;
+            }
+            if (size > 0) {
+                double dx = x - xs[last];
+                double dy = y - ys[last];
+                double dz = z - zs[last];
+                long dt = Math.max(1L, tick - ticks[last]);
+                speed = (float) (Math.sqrt(dx * dx + dy * dy + dz * dz) / dt);
+            }
+        }
+
+        int i = base + heads[slot];
+        ticks[i] = tick;
+        xs[i] = x;
+        ys[i] = y;
+        zs[i] = z;
+        yaws[i] = yaw;
+        pitches[i] = pitch;
+        speeds[i] = speed;
+        flags[i] = (byte) sampleFlags;
+        heads[slot] = (heads[slot] + 1) % CAPACITY;
+        sizes[slot] = Math.min(CAPACITY, size + 1);
+    }
+
+    // Buffer index of the k-th newest sample of the slot
+    private int index(int slot, int k) {
+        return slot * CAPACITY + (heads[slot] + CAPACITY - 1 - k) % CAPACITY;
+    }
+
+    // Number of samples of the slot no older than window ticks
+    private int samplesWithin(int slot, long now, int window) {
+        if (slot < 0 || slot >= sizes.length) return 0;
+        int n = 0;
+        while (n < sizes[slot] && now - ticks[index(slot, n)] <= window) {
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Net yaw turned, in degrees, over the current airborne stretch within the
+     * window. A full spin in either direction gives at least 360.
+     */
+    public double airborneRotation(int slot, long now, int window) {
+        int n = samplesWithin(slot, now, window);
+        double total = 0;
+        for (int k = 0; k + 1 < n; k++) {
+            int newer = index(slot, k);
+            int older = index(slot, k + 1);
+            if ((flags[newer] & ON_GROUND) != 0 || (flags[older] & ON_GROUND) != 0) break;
+            double delta = yaws[newer] - yaws[older];
+            // Yaw wraps around, so take the short way between samples
+            delta -= 360.0 * Math.floor((delta + 180.0) / 360.0);
+            total += delta;
+        }
+        return Math.abs(total);
+    }
+
+    // Ticks since the player was last recorded on the ground, capped by the buffer length
+    public int airtime(int slot, long now) {
+        if (slot < 0 || slot >= sizes.length || sizes[slot] == 0) return 0;
+        long since = now;
+        for (int k = 0; k < sizes[slot]; k++) {
+            int i = index(slot, k);
+            if ((flags[i] & ON_GROUND) != 0) break;
+            since = ticks[i];
+        }
+        return (int) (now - since);
+    }
+
+    // Horizontal path length over the window, in blocks
+    public double horizontalDistance(int slot, long now, int window) {
+        int n = samplesWithin(slot, now, window);
+        double distance = 0;
+        for (int k = 0; k + 1 < n; k++) {
+            int newer = index(slot, k);
+            int older = index(slot, k + 1);
+            double dx = xs[newer] - xs[older];
+            double dz = zs[newer] - zs[older];
+            distance += Math.sqrt(dx * dx + dz * dz);
+        }
+        return distance;
+    }
+
+    // Highest speed over the window, in blocks per tick
+    public double peakSpeed(int slot, long now, int window) {
+        int n = samplesWithin(slot, now, window);
+        double peak = 0;
+        for (int k = 0; k < n; k++) {
+            peak = Math.max(peak, speeds[index(slot, k)]);
+        }
+        return peak;
+    }
+
+    // How far below the highest point of the window the newest sample is
+    public double verticalDrop(int slot, long now, int window) {
+        int n = samplesWithin(slot, now, window);
+        if (n == 0) return 0;
+        double latest = ys[index(slot, 0)];
+        double highest = latest;
+        for (int k = 1; k < n; k++) {
+            highest = Math.max(highest, ys[index(slot, k)]);
+        }
+        return highest - latest;
+    }
+
+    // Whether any sample in the window has (flags & mask) == value
+    public boolean seen(int slot, long now, int window, int mask, int value) {
+        int n = samplesWithin(slot, now, window);
+        for (int k = 0; k < n; k++) {
+            if ((flags[index(slot, k)] & mask) == value) return true;
+        }
+        return false;
+    }
+
+    // Pitch of the newest sample, or 0 without samples
+    public float latestPitch(int slot) {
+        if (slot < 0 || slot >= sizes.length || sizes[slot] == 0) return 0;
+        return pitches[index(slot, 0)];
+    }
+}
@@ -0,0 +1,113 @@
+package com.wonkyfingers.simon;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * How every participant is doing on the current task, indexed by participant
+ * slot. Flags are bitsets and counters are plain arrays, all cleared in bulk
+ * when a task starts instead of allocating fresh state per player.
+ */
+public class ParticipantProgress {
+    private final BitSet enrolled = new BitSet();   // Online when the task started
+    private final BitSet judged = new BitSet();     // Verdict already given this task
+    private final BitSet failed = new BitSet();
+    private final BitSet triggered = new BitSet();  // Enough events arrived, or the sequence finished
+    private final BitSet lastResult = new BitSet(); // Outcome of the most recent polled check
+    private int[] events = new int[16];             // Matching events seen for an event-driven task
+    private int[] steps = new int[16];              // Next step of a sequence task
+    private long[] stepTicks = new long[16];        // Tick the current step was reached
+    private final BitSet distinct = new BitSet();   // Kinds seen per slot, at slot * kinds + kind
+
+    /**
+     * Forgets the last task's state for every slot. Nobody is enrolled until
+     * enroll() is called.
+     */
+    public void reset(int slotCount, long tick) {
+        enrolled.clear();
+        judged.clear();
+        failed.clear();
+        triggered.clear();
+        lastResult.clear();
+        distinct.clear();
+        if (events.length < slotCount) {
+            int length = Math.max(slotCount, events.length * 2);
+            events = new int[length];
+            steps = new int[length];
+            stepTicks = new long[length];
+        } else {
+            Arrays.fill(events, 0);
+            Arrays.fill(steps, 0);
+        }
+        Arrays.fill(stepTicks, tick);
+    }
+
+    public void enroll(int slot) {
+        enrolled.set(slot);
+    }
+
+    // Whether the slot takes part in the current task; false for -1
+    public boolean isEnrolled(int slot) {
+        return slot >= 0 && enrolled.get(slot);
+    }
+
+    public boolean isJudged(int slot) {
+        return judged.get(slot);
+    }
+
+    public boolean isFailed(int slot) {
+        return failed.get(slot);
+    }
+
+    public void judge(int slot, boolean hasFailed) {
+        judged.set(slot);
+        failed.set(slot, hasFailed);
+    }
+
+    public boolean isTriggered(int slot) {
+        return triggered.get(slot);
+    }
+
+    public void trigger(int slot) {
+        triggered.set(slot);
+    }
+
+    public boolean getLastResult(int slot) {
+        return lastResult.get(slot);
+    }
+
+    public void setLastResult(int slot, boolean result) {
+        lastResult.set(slot, result);
+    }
+
+    // Counts one more matching event and returns the new total
+    public int addEvent(int slot) {
+        return ++events[slot];
+    }
+
+    /**
+     * Records that the player did something of the given kind, e.g. crafted a
+     * material, out of kinds possible ones.
+     *
+     * @return true if the player hadn't done this kind yet during the task
+     */
+    public boolean addDistinct(int slot, int kind, int kinds) {
+        int index = slot * kinds + kind;
+        if (distinct.get(index)) return false;
+        distinct.set(index);
+        return true;
+    }
+
+    public int getStep(int slot) {
+        return steps[slot];
+    }
+
+    public long getStepTick(int slot) {
+        return stepTicks[slot];
+    }
+
+    public void setStep(int slot, int step, long tick) {
+        steps[slot] = step;
+        stepTicks[slot] = tick;
+    }
+}
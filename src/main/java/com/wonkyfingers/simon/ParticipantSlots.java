@@ -0,0 +1,84 @@
+package com.wonkyfingers.simon;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Gives every participant a dense index for the whole game, so per-player state
+ * can live in plain arrays instead of maps keyed by UUID. The UUID to slot
+ * table is open-addressed over primitive arrays, so a lookup doesn't box.
+ * Checks get their slot handed to them; only events still look one up.
+ */
+public class ParticipantSlots {
+    private UUID[] keys = new UUID[32];   // Hash table, twice the capacity of ids or more
+    private int[] values = new int[32];
+    private UUID[] ids = new UUID[16];    // Slot to player
+    private int size;
+
+    // The player's slot, assigning the next free one on first sight
+    public int register(UUID playerId) {
+        int existing = slotOf(playerId);
+        if (existing >= 0) return existing;
+
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        if ((size + 1) * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+        ids[size] = playerId;
+        insert(playerId, size);
+        return size++;
+    }
+
+    // The player's slot, or -1 if they aren't in this game
+    public int slotOf(UUID playerId) {
+        int mask = keys.length - 1;
+        for (int i = indexOf(playerId, mask); keys[i] != null; i = (i + 1) & mask) {
+            if (keys[i].equals(playerId)) {
+                return values[i];
+            }
+        }
+        return -1;
+    }
+
+    private void insert(UUID playerId, int slot) {
+        int mask = keys.length - 1;
+        int i = indexOf(playerId, mask);
+        while (keys[i] != null) {
+            i = (i + 1) & mask;
+        }
+        keys[i] = playerId;
+        values[i] = slot;
+    }
+
+    private void rehash(int capacity) {
+        keys = new UUID[capacity];
+        values = new int[capacity];
+        for (int slot = 0; slot < size; slot++) {
+            insert(ids[slot], slot);
+        }
+    }
+
+    // Player UUIDs are random already; fold the halves and spread the bits
+    private static int indexOf(UUID playerId, int mask) {
+        long bits = playerId.getMostSignificantBits() ^ playerId.getLeastSignificantBits();
+        int hash = (int) (bits ^ (bits >>> 32));
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    public UUID getId(int slot) {
+        return ids[slot];
+    }
+
+    // Number of slots handed out; arrays indexed by slot need at least this length
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, null);
+        Arrays.fill(ids, 0, size, null);
+        size = 0;
+    }
+}
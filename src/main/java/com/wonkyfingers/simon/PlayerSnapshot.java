@@ -0,0 +1,322 @@
+package com.wonkyfingers.simon;
+
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+import org.bukkit.potion.PotionEffect;
+import org.bukkit.potion.PotionEffectType;
+import org.bukkit.util.Vector;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * An immutable copy of everything the state-based tasks look at, taken on the
+ * main thread so the checks themselves can run on any thread.
+ */
+public final class PlayerSnapshot implements PlayerState {
+    private final UUID playerId;
+    private final int slot;
+    private final World.Environment environment;
+    private final boolean storm;
+    private final double x;
+    private final double y;
+    private final double z;
+    private final float yaw;
+    private final float pitch;
+    private final boolean onGround;
+    private final boolean sneaking;
+    private final boolean sprinting;
+    private final boolean swimming;
+    private final boolean gliding;
+    private final boolean blocking;
+    private final double velocityX;
+    private final double velocityY;
+    private final double velocityZ;
+    private final int foodLevel;
+    private final float saturation;
+
+    private final Material mainHand;
+    private final int mainHandEnchantments;
+    private final Material[] hotbar = new Material[9];
+    private final Material[] armor = new Material[4];      // Boots, leggings, chestplate, helmet; null if empty
+    private final int[] armorEnchantments = new int[4];
+    private final boolean featherFallingBoots;
+    private final boolean protectionHelmet;
+    private final Map<Material, Integer> inventory;         // Total amount per material in the storage slots
+    private final Map<PotionEffectType, Integer> effects;   // Amplifier per active effect
+
+    private final ChunkSnapshot chunk; // The chunk the player stands in, or null if not captured
+    private final int minHeight;
+    private final int maxHeight;
+
+    private PlayerSnapshot(Player player, int slot, ChunkSnapshot chunk) {
+        Location loc = player.getLocation();
+        PlayerInventory inv = player.getInventory();
+
+        this.playerId = player.getUniqueId();
+        this.slot = slot;
+        this.environment = player.getWorld().getEnvironment();
+        this.storm = player.getWorld().hasStorm();
+        this.x = loc.getX();
+        this.y = loc.getY();
+        this.z = loc.getZ();
+        this.yaw = loc.getYaw();
+        this.pitch = loc.getPitch();
+        this.onGround = player.isOnGround();
+        this.sneaking = player.isSneaking();
+        this.sprinting = player.isSprinting();
+        this.swimming = player.isSwimming();
+        this.gliding = player.isGliding();
+        this.blocking = player.isBlocking();
+        Vector velocity = player.getVelocity();
+        this.velocityX = velocity.getX();
+        this.velocityY = velocity.getY();
+        this.velocityZ = velocity.getZ();
+        this.foodLevel = player.getFoodLevel();
+        this.saturation = player.getSaturation();
+
+        ItemStack hand = inv.getItemInMainHand();
+        this.mainHand = hand.getType();
+        this.mainHandEnchantments = hand.getEnchantments().size();
+        for (int i = 0; i < 9; i++) {
+            ItemStack item = inv.getItem(i);
+            hotbar[i] = item == null ? null : item.getType();
+        }
+        ItemStack[] armorContents = inv.getArmorContents();
+        for (int i = 0; i < 4; i++) {
+            ItemStack item = armorContents[i];
+            armor[i] = item == null ? null : item.getType();
+            armorEnchantments[i] = item == null ? 0 : item.getEnchantments().size();
+        }
+        ItemStack boots = inv.getBoots();
+        this.featherFallingBoots = boots != null && boots.getEnchantments().containsKey(Enchantment.FEATHER_FALLING);
+        ItemStack helmet = inv.getHelmet();
+        this.protectionHelmet = helmet != null && helmet.getEnchantments().containsKey(Enchantment.PROTECTION);
+
+        Map<Material, Integer> amounts = new EnumMap<>(Material.class);
+        for (ItemStack item : inv.getStorageContents()) {
+            if (item != null) {
+                amounts.merge(item.getType(), item.getAmount(), Integer::sum);
+            }
+        }
+        this.inventory = Collections.unmodifiableMap(amounts);
+
+        Map<PotionEffectType, Integer> active = new HashMap<>();
+        for (PotionEffect effect : player.getActivePotionEffects()) {
+            active.put(effect.getType(), effect.getAmplifier());
+        }
+        this.effects = Collections.unmodifiableMap(active);
+
+        this.chunk = chunk;
+        this.minHeight = player.getWorld().getMinHeight();
+        this.maxHeight = player.getWorld().getMaxHeight();
+    }
+
+    /**
+     * Copies the player's state. Must run on the main thread.
+     *
+     * @param slot the player's participant slot, carried along so verdicts don't look it up; -1 if unused
+     * @param chunk snapshot of the player's chunk for tasks that read blocks, or null
+     */
+    public static PlayerSnapshot capture(Player player, int slot, ChunkSnapshot chunk) {
+        return new PlayerSnapshot(player, slot, chunk);
+    }
+
+    public UUID getPlayerId() {
+        return playerId;
+    }
+
+    public int getSlot() {
+        return slot;
+    }
+
+    @Override
+    public World.Environment getEnvironment() {
+        return environment;
+    }
+
+    @Override
+    public boolean hasStorm() {
+        return storm;
+    }
+
+    @Override
+    public double getX() {
+        return x;
+    }
+
+    @Override
+    public double getY() {
+        return y;
+    }
+
+    @Override
+    public double getZ() {
+        return z;
+    }
+
+    @Override
+    public float getYaw() {
+        return yaw;
+    }
+
+    @Override
+    public float getPitch() {
+        return pitch;
+    }
+
+    @Override
+    public boolean isOnGround() {
+        return onGround;
+    }
+
+    @Override
+    public boolean isSneaking() {
+        return sneaking;
+    }
+
+    @Override
+    public boolean isSprinting() {
+        return sprinting;
+    }
+
+    @Override
+    public boolean isSwimming() {
+        return swimming;
+    }
+
+    @Override
+    public boolean isGliding() {
+        return gliding;
+    }
+
+    @Override
+    public boolean isBlocking() {
+        return blocking;
+    }
+
+    @Override
+    public double getVelocityY() {
+        return velocityY;
+    }
+
+    @Override
+    public double getSpeed() {
+        return Math.sqrt(velocityX * velocityX + velocityY * velocityY + velocityZ * velocityZ);
+    }
+
+    @Override
+    public int getFoodLevel() {
+        return foodLevel;
+    }
+
+    @Override
+    public float getSaturation() {
+        return saturation;
+    }
+
+    @Override
+    public Material getMainHand() {
+        return mainHand;
+    }
+
+    @Override
+    public int getMainHandEnchantments() {
+        return mainHandEnchantments;
+    }
+
+    @Override
+    public Material getHotbar(int slot) {
+        return hotbar[slot];
+    }
+
+    @Override
+    public Material getArmor(int slot) {
+        return armor[slot];
+    }
+
+    @Override
+    public int getArmorEnchantments(int slot) {
+        return armorEnchantments[slot];
+    }
+
+    @Override
+    public Material getHelmet() {
+        return armor[3];
+    }
+
+    @Override
+    public boolean hasFeatherFallingBoots() {
+        return featherFallingBoots;
+    }
+
+    @Override
+    public boolean hasProtectionHelmet() {
+        return protectionHelmet;
+    }
+
+    @Override
+    public boolean hasItem(Material material, int amount) {
+        Integer total = inventory.get(material);
+        return total != null && total >= amount;
+    }
+
+    @Override
+    public boolean hasItem(Material material) {
+        return inventory.containsKey(material);
+    }
+
+    @Override
+    public int getEffectCount() {
+        return effects.size();
+    }
+
+    @Override
+    public boolean hasEffect(PotionEffectType type) {
+        return effects.containsKey(type);
+    }
+
+    @Override
+    public int getEffectAmplifier(PotionEffectType type) {
+        Integer amplifier = effects.get(type);
+        return amplifier == null ? -1 : amplifier;
+    }
+
+    @Override
+    public boolean hasChunk() {
+        return chunk != null;
+    }
+
+    /**
+     * Block type at an offset from the player's feet. Only blocks in the player's
+     * own chunk are captured; anything else reads as null.
+     */
+    @Override
+    public Material getBlockType(int dx, int dy, int dz) {
+        if (chunk == null) return null;
+        int bx = (int) Math.floor(x) + dx;
+        int by = (int) Math.floor(y) + dy;
+        int bz = (int) Math.floor(z) + dz;
+        if (bx >> 4 != chunk.getX() || bz >> 4 != chunk.getZ()) return null;
+        if (by < minHeight) return Material.VOID_AIR;
+        if (by >= maxHeight) return Material.AIR;
+        return chunk.getBlockType(bx & 15, by, bz & 15);
+    }
+
+    @Override
+    public int getSkyLight() {
+        int by = (int) Math.floor(y);
+        if (chunk == null || by < minHeight) return 0;
+        if (by >= maxHeight) return 15;
+        return chunk.getBlockSkyLight((int) Math.floor(x) & 15, by, (int) Math.floor(z) & 15);
+    }
+}
@@ -0,0 +1,85 @@
+package com.wonkyfingers.simon;
+
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.potion.PotionEffectType;
+
+/**
+ * What the state-based tasks read about a player. A PlayerSnapshot is a copy
+ * that can be read on any thread; a LivePlayerState reads the player on the
+ * main thread without copying anything.
+ */
+public interface PlayerState {
+    World.Environment getEnvironment();
+
+    boolean hasStorm();
+
+    double getX();
+
+    double getY();
+
+    double getZ();
+
+    float getYaw();
+
+    float getPitch();
+
+    boolean isOnGround();
+
+    boolean isSneaking();
+
+    boolean isSprinting();
+
+    boolean isSwimming();
+
+    boolean isGliding();
+
+    boolean isBlocking();
+
+    double getVelocityY();
+
+    double getSpeed();
+
+    int getFoodLevel();
+
+    float getSaturation();
+
+    Material getMainHand();
+
+    int getMainHandEnchantments();
+
+    // Material in a hotbar slot, or null if it is empty
+    Material getHotbar(int slot);
+
+    // Armor piece in getArmorContents() order, or null if the slot is empty
+    Material getArmor(int slot);
+
+    int getArmorEnchantments(int slot);
+
+    Material getHelmet();
+
+    boolean hasFeatherFallingBoots();
+
+    boolean hasProtectionHelmet();
+
+    // Same as Inventory.contains(material, amount)
+    boolean hasItem(Material material, int amount);
+
+    boolean hasItem(Material material);
+
+    int getEffectCount();
+
+    boolean hasEffect(PotionEffectType type);
+
+    // Amplifier of the effect, or -1 if it isn't active
+    int getEffectAmplifier(PotionEffectType type);
+
+    // Whether getBlockType and getSkyLight can read blocks at all
+    boolean hasChunk();
+
+    // Block type at an offset from the player's feet, or null if it can't be read
+    Material getBlockType(int dx, int dy, int dz);
+
+    // Sky light at the player's feet, ignoring time of day
+    int getSkyLight();
+}
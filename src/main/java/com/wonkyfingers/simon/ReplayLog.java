@@ -0,0 +1,117 @@
+package com.wonkyfingers.simon;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.BitSet;
+
+/**
+ * A compact binary record of the decisions made in one game: which task came
+ * up, whether Simon said it, the contradictory command, punishments and zone
+ * phases. Each draw also records what it depended on, the deck's weights and
+ * which tasks were feasible, so with the seed in its header ReplayTool can
+ * redo every decision and check it. Free of Bukkit for the same reason.
+ */
+public final class ReplayLog {
+    public static final int MAGIC = 0x53494D52; // "SIMR"
+    public static final int VERSION = 2;
+
+    // Record types; each record is the type, the game tick as an int, then its fields
+    public static final int TASK = 1;       // short task index, feasible tasks, UTF description, boolean simon says,
+                                            // short contradictory index or -1, then its UTF description if any
+    public static final int PUNISHMENT = 2; // short participant slot, byte effect bits
+    public static final int PHASE = 3;      // byte zone phase
+    public static final int DECK = 4;       // short task count, then UTF description and double weight per task
+
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(1024);
+    private final DataOutputStream out = new DataOutputStream(buffer);
+    private final long startedMillis;
+
+    public ReplayLog(long seed, String arenaId, long startedMillis) {
+        this.startedMillis = startedMillis;
+        try {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeLong(seed);
+            out.writeUTF(arenaId);
+            out.writeLong(startedMillis);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // The tasks the deck draws from, whenever they change
+    public void deck(long tick, String[] descriptions, double[] weights) {
+        try {
+            begin(DECK, tick);
+            out.writeShort(descriptions.length);
+            for (int i = 0; i < descriptions.length; i++) {
+                out.writeUTF(descriptions[i]);
+                out.writeDouble(weights[i]);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * A task draw: the deck index drawn out of the feasible ones, and the
+     * contradictory task's index, or -1 without one.
+     */
+    public void task(long tick, int index, BitSet feasible, String description, boolean simonSays,
+                     int contradictoryIndex, String contradictory) {
+        try {
+            begin(TASK, tick);
+            out.writeShort(index);
+            writeBits(feasible);
+            out.writeUTF(description);
+            out.writeBoolean(simonSays);
+            out.writeShort(contradictoryIndex);
+            if (contradictoryIndex >= 0) {
+                out.writeUTF(contradictory);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Byte count, then the bytes of BitSet.toByteArray()
+    private void writeBits(BitSet bits) throws IOException {
+        byte[] bytes = bits.toByteArray();
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    public void punishment(long tick, int slot, int effects) {
+        try {
+            begin(PUNISHMENT, tick);
+            out.writeShort(slot);
+            out.writeByte(effects);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void phase(long tick, int phase) {
+        try {
+            begin(PHASE, tick);
+            out.writeByte(phase);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void begin(int type, long tick) throws IOException {
+        out.writeByte(type);
+        out.writeInt((int) tick);
+    }
+
+    public long getStartedMillis() {
+        return startedMillis;
+    }
+
+    public byte[] toByteArray() {
+        return buffer.toByteArray();
+    }
+}
@@ -0,0 +1,150 @@
+package com.wonkyfingers.simon;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.BitSet;
+
+/**
+ * Prints the decisions of a recorded game and checks every one against what
+ * the game's seed produces. Needs no server:
+ *
+ * <pre>java -cp Simon.jar com.wonkyfingers.simon.ReplayTool plugins/Simon/replays/default-1700000000000.simr</pre>
+ *
+ * Task draws depend on the world at the time, so the log carries which tasks
+ * were feasible for each draw; the draws themselves are redone with TaskDeck.
+ */
+public final class ReplayTool {
+    // Same order as the effects in TaskManager.failPlayer
+    private static final String[] EFFECT_NAMES = {"WEAKNESS", "SLOWNESS", "NAUSEA", "BLINDNESS", "HUNGER"};
+
+    private ReplayTool() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: ReplayTool <replay file>");
+            System.exit(2);
+        }
+
+        int mismatches = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(Path.of(args[0]))))) {
+            if (in.readInt() != ReplayLog.MAGIC) {
+                System.err.println(args[0] + " is not a replay file");
+                System.exit(2);
+            }
+            int version = in.readUnsignedByte();
+            if (version != ReplayLog.VERSION) {
+                System.err.println("Unsupported replay version " + version);
+                System.exit(2);
+            }
+            long seed = in.readLong();
+            String arenaId = in.readUTF();
+            long started = in.readLong();
+            System.out.println("Arena " + arenaId + ", started " + Instant.ofEpochMilli(started) + ", seed " + seed);
+
+            GameRandom random = new GameRandom(seed);
+            TaskDeck deck = new TaskDeck();
+            String[] names = new String[0];
+            while (true) {
+                int type = in.read();
+                if (type < 0) break;
+                int tick = in.readInt();
+
+                switch (type) {
+                    case ReplayLog.DECK: {
+                        int count = in.readUnsignedShort();
+                        names = new String[count];
+                        double[] weights = new double[count];
+                        for (int i = 0; i < count; i++) {
+                            names[i] = in.readUTF();
+                            weights[i] = in.readDouble();
+                        }
+                        deck.setWeights(weights);
+                        System.out.printf("%8d  deck of %d tasks%n", tick, count);
+                        break;
+                    }
+                    case ReplayLog.TASK: {
+                        int index = in.readShort();
+                        byte[] feasibleBytes = new byte[in.readUnsignedShort()];
+                        in.readFully(feasibleBytes);
+                        BitSet feasible = BitSet.valueOf(feasibleBytes);
+                        String description = in.readUTF();
+                        boolean simonSays = in.readBoolean();
+                        int contradictoryIndex = in.readShort();
+                        String contradictory = contradictoryIndex >= 0 ? in.readUTF() : null;
+
+                        // Same order of draws as TaskManager.drawNextTask and startNewTask
+                        int expectedIndex = deck.draw(feasible, random.deck());
+                        boolean expectedSimonSays = random.nextSimonSays();
+                        int expectedContradictory = random.nextContradictory() ? deck.drawOther(random.deck()) : -1;
+
+                        StringBuilder differences = new StringBuilder();
+                        if (index != expectedIndex) {
+                            differences.append(", seed drew ").append(nameOf(names, expectedIndex));
+                        }
+                        if (simonSays != expectedSimonSays) {
+                            differences.append(expectedSimonSays ? ", seed said Simon says" : ", seed said no Simon says");
+                        }
+                        if (contradictoryIndex != expectedContradictory) {
+                            differences.append(", seed contradicted with ").append(nameOf(names, expectedContradictory));
+                        }
+                        if (differences.length() > 0) mismatches++;
+                        System.out.printf("%8d  task %s%s (%d of %d feasible)%s%s%n", tick,
+                                simonSays ? "(Simon says) " : "",
+                                description,
+                                feasible.cardinality(), names.length,
+                                contradictory == null ? "" : ", contradicted by " + contradictory,
+                                differences.length() == 0 ? "" : "  << differs from seed" + differences);
+                        break;
+                    }
+                    case ReplayLog.PUNISHMENT: {
+                        int slot = in.readUnsignedShort();
+                        int effects = in.readUnsignedByte();
+                        boolean matches = effects == random.nextPunishment();
+                        if (!matches) mismatches++;
+                        System.out.printf("%8d  punish participant %d: %s%s%n", tick, slot,
+                                effectNames(effects), matches ? "" : "  << differs from seed");
+                        break;
+                    }
+                    case ReplayLog.PHASE:
+                        System.out.printf("%8d  zone phase %d%n", tick, in.readUnsignedByte());
+                        break;
+                    default:
+                        System.err.println("Unknown record type " + type + " at tick " + tick);
+                        System.exit(2);
+                }
+            }
+        } catch (EOFException e) {
+            System.err.println("Replay is truncated");
+            System.exit(2);
+        }
+
+        if (mismatches == 0) {
+            System.out.println("Every decision matches the seed.");
+        } else {
+            System.out.println(mismatches + " decision(s) differ from the seed.");
+            System.exit(1);
+        }
+    }
+
+    private static String nameOf(String[] names, int index) {
+        if (index < 0) return "nothing";
+        return index < names.length ? names[index] : "task #" + index;
+    }
+
+    private static String effectNames(int effects) {
+        StringBuilder names = new StringBuilder();
+        for (int i = 0; i < EFFECT_NAMES.length; i++) {
+            if ((effects & (1 << i)) != 0) {
+                if (names.length() > 0) names.append(", ");
+                names.append(EFFECT_NAMES[i]);
+            }
+        }
+        return names.toString();
+    }
+}
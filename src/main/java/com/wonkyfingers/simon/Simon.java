@@ -1,37 +1,82 @@
 package com.wonkyfingers.simon;
 
+import org.bukkit.Bukkit;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import java.io.File;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
 public final class Simon extends JavaPlugin {
-    private Game_Setup gameSetup;
-    private TaskManager taskManager;
+    private ArenaManager arenaManager;
+    private ForkJoinPool evaluationPool;
+    private volatile TaskCatalog taskCatalog = TaskCatalog.empty();
 
     @Override
     public void onEnable() {
-        // Initialize task manager
-        taskManager = new TaskManager(this);
+        // Snapshot task checks run here, leaving one core for the server thread
+        evaluationPool = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+
+        saveDefaultConfig();
+
+        // Arenas read the task catalog when they are created, so load it first
+        if (!new File(getDataFolder(), "tasks.yml").exists()) {
+            saveResource("tasks.yml", false);
+        }
+        taskCatalog = TaskCatalog.load(new File(getDataFolder(), "tasks.yml"), getLogger());
 
-        // Initialize game setup
-        gameSetup = new Game_Setup(this);
+        // Each arena owns its own clock, zone and task rotation
+        arenaManager = new ArenaManager(this);
 
-        // Register commands with task manager
-        GameCommands gameCommands = new GameCommands(gameSetup, taskManager);
+        // Register commands with arena manager
+        GameCommands gameCommands = new GameCommands(this, arenaManager);
         getCommand("startgame").setExecutor(gameCommands);
         getCommand("stopgame").setExecutor(gameCommands);
+        getCommand("reloadtasks").setExecutor(gameCommands);
+        getCommand("simonstats").setExecutor(gameCommands);
 
         // Register task listener
-        getServer().getPluginManager().registerEvents(new TaskListener(taskManager), this);
+        getServer().getPluginManager().registerEvents(new TaskListener(arenaManager), this);
+
+        // Register zone listener
+        getServer().getPluginManager().registerEvents(new ZoneListener(arenaManager), this);
 
         getLogger().info("Simon plugin enabled!");
     }
 
     @Override
     public void onDisable() {
-        if (gameSetup != null) {
-            gameSetup.cleanup();
+        if (arenaManager != null) {
+            arenaManager.stopAll();
         }
-        if (taskManager != null) {
-            taskManager.cleanup();
+        if (evaluationPool != null) {
+            evaluationPool.shutdownNow();
         }
     }
+
+    /**
+     * Reads and compiles tasks.yml off the main thread, then hands the new catalog
+     * to every arena. Arenas swap it in between two tasks.
+     */
+    public void reloadTaskCatalog(Consumer<String> feedback) {
+        File file = new File(getDataFolder(), "tasks.yml");
+        Bukkit.getScheduler().runTaskAsynchronously(this, () -> {
+            TaskCatalog loaded = TaskCatalog.load(file, getLogger());
+            Bukkit.getScheduler().runTask(this, () -> {
+                taskCatalog = loaded;
+                for (Arena arena : arenaManager.getArenas()) {
+                    arena.getTaskManager().setCatalog(loaded);
+                }
+                feedback.accept("§aLoaded §e" + loaded.size() + "§a tasks from tasks.yml.");
+            });
+        });
+    }
+
+    public TaskCatalog getTaskCatalog() {
+        return taskCatalog;
+    }
+
+    public ForkJoinPool getEvaluationPool() {
+        return evaluationPool;
+    }
 }
\ No newline at end of file
@@ -1,13 +1,59 @@
 package com.wonkyfingers.simon;
 
+import org.bukkit.Material;
+import org.bukkit.Statistic;
+import org.bukkit.World;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
+import org.bukkit.event.Event;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiPredicate;
 import java.util.function.Predicate;
 
 public class SimonTask {
+    // How much work one check of the task is, so the expensive ones can be spread over ticks
+    public enum Cost {
+        CHEAP,     // Flags and fields on the player
+        MODERATE,  // A few block, inventory or statistic reads
+        EXPENSIVE  // Block area scans and entity queries
+    }
+
+    // How hard the task is for players; harder tasks come up less often
+    public enum Difficulty {
+        EASY,
+        NORMAL,
+        HARD
+    }
+
     private final String description;
     private final Predicate<Player> completionCheck;
     private final String hint;  // Optional hint or guidance for the task
 
+    // Events that count towards the task, and how many of them it takes
+    private final List<EventTrigger<?>> triggers = new ArrayList<>();
+    private int requiredEvents = 1;
+    private Cost cost = Cost.CHEAP;
+    private Difficulty difficulty = Difficulty.NORMAL;
+    private World.Environment requiredEnvironment; // null if any dimension will do
+    private boolean requiresStorm;
+    private double requiredZoneRadius;
+    private final Set<Material> watchedBlocks = EnumSet.noneOf(Material.class);
+    private final Set<Class<? extends Entity>> watchedEntities = new HashSet<>();
+    private final List<StatisticTracker.Key> trackedStatistics = new ArrayList<>();
+
+    // Set for tasks that only need a PlayerSnapshot and so can be checked off the main thread
+    private Predicate<PlayerState> snapshotCheck;
+    private boolean needsChunk;
+    private final LivePlayerState live = new LivePlayerState(); // Reads the player when the check runs inline
+    private TaskSequence sequence; // Set for tasks that are a series of steps
+
     // Constructor to set both description and completion check
     public SimonTask(String description, Predicate<Player> completionCheck, String hint) {
         this.description = description;
@@ -20,6 +66,144 @@ public class SimonTask {
         this(description, completionCheck, "No hint provided.");
     }
 
+    // Constructor for tasks that are only detected through events
+    public SimonTask(String description, String hint) {
+        this(description, null, hint);
+    }
+
+    /**
+     * A task whose check only reads a PlayerSnapshot. It can be evaluated in
+     * parallel off the main thread; live tasks use the constructors instead.
+     */
+    public static SimonTask fromSnapshot(String description, Predicate<PlayerState> check, String hint) {
+        SimonTask task = new SimonTask(description, null, hint);
+        task.snapshotCheck = check;
+        return task;
+    }
+
+    // The snapshot check reads blocks, so the player's chunk has to be captured too
+    public SimonTask needsChunk() {
+        this.needsChunk = true;
+        return this;
+    }
+
+    /**
+     * Counts every event of the given type that passes the filter towards the task.
+     * TaskListener has to forward the event type for it to arrive here.
+     */
+    public <E extends Event> SimonTask onEvent(Class<E> type, BiPredicate<Player, E> filter) {
+        triggers.add(new EventTrigger<>(type, filter));
+        return this;
+    }
+
+    /**
+     * Completes the task once the player goes through the steps in order. Steps
+     * advance on movement, sneak and sprint events.
+     */
+    public SimonTask sequence(TaskSequence sequence) {
+        this.sequence = sequence;
+        return this;
+    }
+
+    public TaskSequence getSequence() {
+        return sequence;
+    }
+
+    // Number of matching events needed to complete the task
+    public SimonTask times(int count) {
+        this.requiredEvents = count;
+        return this;
+    }
+
+    public SimonTask cost(Cost cost) {
+        this.cost = cost;
+        return this;
+    }
+
+    public SimonTask difficulty(Difficulty difficulty) {
+        this.difficulty = difficulty;
+        return this;
+    }
+
+    // The task can only be done in this dimension
+    public SimonTask requiresEnvironment(World.Environment environment) {
+        this.requiredEnvironment = environment;
+        return this;
+    }
+
+    // The task can only be done while it storms
+    public SimonTask requiresStorm() {
+        this.requiresStorm = true;
+        return this;
+    }
+
+    // The task needs at least this much room inside the zone
+    public SimonTask requiresZoneRadius(double radius) {
+        this.requiredZoneRadius = radius;
+        return this;
+    }
+
+    /**
+     * Whether the task can be done at all in the world and zone as they are now.
+     * Only reads the world's settings, never players.
+     */
+    public boolean isFeasible(World world, double zoneRadius) {
+        return (requiredEnvironment == null || world.getEnvironment() == requiredEnvironment)
+                && (!requiresStorm || world.hasStorm())
+                && zoneRadius >= requiredZoneRadius;
+    }
+
+    // Materials the arena's BlockIndex should track while this task runs
+    public SimonTask watchBlocks(Material... materials) {
+        watchedBlocks.addAll(Arrays.asList(materials));
+        return this;
+    }
+
+    public SimonTask watchBlocks(Set<Material> materials) {
+        watchedBlocks.addAll(materials);
+        return this;
+    }
+
+    public Set<Material> getWatchedBlocks() {
+        return watchedBlocks;
+    }
+
+    // Entity types the arena's EntityGrid should collect while this task runs
+    @SafeVarargs
+    public final SimonTask watchEntities(Class<? extends Entity>... types) {
+        watchedEntities.addAll(Arrays.asList(types));
+        return this;
+    }
+
+    public Set<Class<? extends Entity>> getWatchedEntities() {
+        return watchedEntities;
+    }
+
+    // Statistics the task reads as deltas from when it started
+    public SimonTask trackStatistic(Statistic statistic) {
+        trackedStatistics.add(new StatisticTracker.Key(statistic, null, null));
+        return this;
+    }
+
+    public SimonTask trackStatistic(Statistic statistic, Material material) {
+        trackedStatistics.add(new StatisticTracker.Key(statistic, material, null));
+        return this;
+    }
+
+    public SimonTask trackStatistic(Statistic statistic, EntityType entityType) {
+        trackedStatistics.add(new StatisticTracker.Key(statistic, null, entityType));
+        return this;
+    }
+
+    public SimonTask trackStatistic(StatisticTracker.Key key) {
+        trackedStatistics.add(key);
+        return this;
+    }
+
+    public List<StatisticTracker.Key> getTrackedStatistics() {
+        return trackedStatistics;
+    }
+
     public String getDescription() {
         return description;
     }
@@ -28,13 +212,79 @@ public class SimonTask {
         return hint;
     }
 
+    public Cost getCost() {
+        return cost;
+    }
+
+    public Difficulty getDifficulty() {
+        return difficulty;
+    }
+
+    public boolean isEventDriven() {
+        return !triggers.isEmpty();
+    }
+
+    // Whether the state check has to be polled; purely event-driven tasks don't
+    public boolean isPolled() {
+        return completionCheck != null || snapshotCheck != null;
+    }
+
+    public boolean isSnapshotEvaluated() {
+        return snapshotCheck != null;
+    }
+
+    public boolean isChunkNeeded() {
+        return needsChunk;
+    }
+
+    // Safe to call from any thread
+    public boolean checkSnapshot(PlayerSnapshot snapshot) {
+        return snapshotCheck.test(snapshot);
+    }
+
+    public int getRequiredEvents() {
+        return requiredEvents;
+    }
+
+    // Whether the event counts towards this task for the player
+    public boolean matches(Player player, Event event) {
+        for (EventTrigger<?> trigger : triggers) {
+            if (trigger.matches(player, event)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     // Method to check if the player has completed the task
     public boolean isCompleted(Player player) {
-        return completionCheck.test(player);
+        if (snapshotCheck != null) {
+            // On the main thread already, so read the player instead of copying them
+            try {
+                return snapshotCheck.test(live.bind(player));
+            } finally {
+                live.bind(null);
+            }
+        }
+        return completionCheck != null && completionCheck.test(player);
     }
 
     @Override
     public String toString() {
         return description + " - " + hint;
     }
+
+    private static final class EventTrigger<E extends Event> {
+        private final Class<E> type;
+        private final BiPredicate<Player, E> filter;
+
+        EventTrigger(Class<E> type, BiPredicate<Player, E> filter) {
+            this.type = type;
+            this.filter = filter;
+        }
+
+        boolean matches(Player player, Event event) {
+            return type.isInstance(event) && filter.test(player, type.cast(event));
+        }
+    }
 }
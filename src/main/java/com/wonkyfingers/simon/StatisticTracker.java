@@ -0,0 +1,123 @@
+package com.wonkyfingers.simon;
+
+import org.bukkit.Material;
+import org.bukkit.Statistic;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Statistics relative to the start of the current task. Baselines for only the
+ * statistics the task declares are read once when it starts and kept in one
+ * array per statistic, indexed by participant slot.
+ */
+public class StatisticTracker {
+    private final ParticipantSlots slots;
+    private final List<Key> keys = new ArrayList<>();
+    private int[][] baselines = new int[0][];
+    private boolean[] hasBaseline = new boolean[0];
+
+    /**
+     * A statistic, optionally qualified by the material or entity type it counts.
+     */
+    public static final class Key {
+        private final Statistic statistic;
+        private final Material material;
+        private final EntityType entityType;
+
+        public Key(Statistic statistic, Material material, EntityType entityType) {
+            this.statistic = statistic;
+            this.material = material;
+            this.entityType = entityType;
+        }
+
+        int read(Player player) {
+            if (material != null) return player.getStatistic(statistic, material);
+            if (entityType != null) return player.getStatistic(statistic, entityType);
+            return player.getStatistic(statistic);
+        }
+
+        boolean matches(Statistic statistic, Material material, EntityType entityType) {
+            return this.statistic == statistic && this.material == material && this.entityType == entityType;
+        }
+    }
+
+    public StatisticTracker(ParticipantSlots slots) {
+        this.slots = slots;
+    }
+
+    /**
+     * Reads the baseline of every declared statistic for every player in one pass.
+     */
+    public void baseline(List<Player> players, List<Key> tracked) {
+        keys.clear();
+        keys.addAll(tracked);
+
+        int capacity = slots.size();
+        if (baselines.length != keys.size() || hasBaseline.length < capacity) {
+            baselines = new int[keys.size()][capacity];
+            hasBaseline = new boolean[capacity];
+        } else {
+            Arrays.fill(hasBaseline, false);
+        }
+        if (keys.isEmpty()) return;
+
+        for (Player player : players) {
+            int slot = slots.slotOf(player.getUniqueId());
+            if (slot < 0) continue;
+            for (int k = 0; k < keys.size(); k++) {
+                if (baselines[k].length <= slot) {
+                    baselines[k] = Arrays.copyOf(baselines[k], slots.size());
+                }
+                baselines[k][slot] = keys.get(k).read(player);
+            }
+            hasBaseline[slot] = true;
+        }
+    }
+
+    public int delta(Player player, Statistic statistic) {
+        return delta(player, statistic, null, null);
+    }
+
+    public int delta(Player player, Statistic statistic, Material material) {
+        return delta(player, statistic, material, null);
+    }
+
+    public int delta(Player player, Statistic statistic, EntityType entityType) {
+        return delta(player, statistic, null, entityType);
+    }
+
+    public int delta(Player player, Key key) {
+        return delta(player, key.statistic, key.material, key.entityType);
+    }
+
+    // For callers that already know the player's slot
+    public int delta(int slot, Player player, Key key) {
+        return delta(slot, player, key.statistic, key.material, key.entityType);
+    }
+
+    private int delta(Player player, Statistic statistic, Material material, EntityType entityType) {
+        return delta(slots.slotOf(player.getUniqueId()), player, statistic, material, entityType);
+    }
+
+    // How much the statistic grew since the task started; 0 if it wasn't declared or the player had no baseline
+    private int delta(int slot, Player player, Statistic statistic, Material material, EntityType entityType) {
+        if (slot < 0 || slot >= hasBaseline.length || !hasBaseline[slot]) return 0;
+
+        for (int k = 0; k < keys.size(); k++) {
+            Key key = keys.get(k);
+            if (key.matches(statistic, material, entityType)) {
+                return key.read(player) - baselines[k][slot];
+            }
+        }
+        return 0;
+    }
+
+    public void clear() {
+        keys.clear();
+        Arrays.fill(hasBaseline, false);
+    }
+}
@@ -0,0 +1,113 @@
+package com.wonkyfingers.simon;
+
+import org.bukkit.Bukkit;
+import org.bukkit.boss.BarColor;
+import org.bukkit.boss.BarStyle;
+import org.bukkit.boss.BossBar;
+import org.bukkit.entity.Player;
+
+import java.util.Collection;
+
+/**
+ * The task boss bar of one game. It lives as long as the game does and is
+ * only hidden between tasks, so players are added once instead of per task.
+ * Every change is compared with what was last sent first, since each setter
+ * on a boss bar is a packet to every viewer.
+ */
+public class TaskBar {
+    private BossBar bar;
+    private String title = "";
+    private BarColor color = BarColor.WHITE;
+    private double progress = 1.0;
+    private double progressStep; // Smallest progress change worth a packet
+    private boolean visible;
+
+    // Creates the hidden bar for a new game and shows it to the players once a task starts
+    public void open(Collection<Player> players) {
+        close();
+        bar = Bukkit.createBossBar(title, color, BarStyle.SOLID);
+        bar.setVisible(false);
+        for (Player player : players) {
+            bar.addPlayer(player);
+        }
+    }
+
+    public void addPlayer(Player player) {
+        if (bar != null) {
+            bar.addPlayer(player);
+        }
+    }
+
+    public void removePlayer(Player player) {
+        if (bar != null) {
+            bar.removePlayer(player);
+        }
+    }
+
+    /**
+     * Shows a full bar for a new task. Progress is sent at most once per
+     * progressStep, e.g. 1 / seconds for one update per second.
+     */
+    public void show(String newTitle, BarColor newColor, double newProgressStep) {
+        if (bar == null) return;
+        progressStep = newProgressStep;
+        setTitle(newTitle);
+        setColor(newColor);
+        if (progress != 1.0) {
+            progress = 1.0;
+            bar.setProgress(1.0);
+        }
+        if (!visible) {
+            visible = true;
+            bar.setVisible(true);
+        }
+    }
+
+    public void setTitle(String newTitle) {
+        if (bar != null && !newTitle.equals(title)) {
+            title = newTitle;
+            bar.setTitle(newTitle);
+        }
+    }
+
+    public void setColor(BarColor newColor) {
+        if (bar != null && newColor != color) {
+            color = newColor;
+            bar.setColor(newColor);
+        }
+    }
+
+    /**
+     * Moves the bar towards the given progress. Called every tick with the exact
+     * time left, it only sends once the bar has moved a whole step; the client
+     * slides the bar between updates on its own.
+     */
+    public void setProgress(double newProgress) {
+        if (bar == null || !visible) return;
+        newProgress = Math.max(0.0, Math.min(1.0, newProgress));
+        if (progress - newProgress >= progressStep || (newProgress == 0.0 && progress != 0.0)) {
+            progress = newProgress;
+            bar.setProgress(newProgress);
+        }
+    }
+
+    public boolean isVisible() {
+        return visible;
+    }
+
+    // Between tasks: players stay on the bar, they just don't see it
+    public void hide() {
+        if (bar != null && visible) {
+            visible = false;
+            bar.setVisible(false);
+        }
+    }
+
+    public void close() {
+        if (bar != null) {
+            bar.removeAll();
+            bar = null;
+        }
+        visible = false;
+    }
+}
@@ -0,0 +1,440 @@
+package com.wonkyfingers.simon;
+
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.Registry;
+import org.bukkit.Statistic;
+import org.bukkit.World;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Player;
+import org.bukkit.potion.PotionEffectType;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Tasks defined in tasks.yml. Every entry is compiled into a chain of plain
+ * predicates when the file is loaded, so nothing is parsed or looked up by name
+ * while a game runs. A catalog is immutable and safe to build on any thread.
+ */
+public final class TaskCatalog {
+    private static final TaskCatalog EMPTY = new TaskCatalog(Collections.emptyList());
+
+    private final List<Definition> definitions;
+
+    private TaskCatalog(List<Definition> definitions) {
+        this.definitions = definitions;
+    }
+
+    public static TaskCatalog empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Reads and compiles the file. Broken entries are logged and skipped so one
+     * typo doesn't take the other tasks down with it.
+     */
+    public static TaskCatalog load(File file, Logger logger) {
+        if (!file.isFile()) return EMPTY;
+
+        ConfigurationSection tasks = YamlConfiguration.loadConfiguration(file).getConfigurationSection("tasks");
+        if (tasks == null) return EMPTY;
+
+        List<Definition> definitions = new ArrayList<>();
+        for (String id : tasks.getKeys(false)) {
+            try {
+                ConfigurationSection section = tasks.getConfigurationSection(id);
+                if (section == null) {
+                    throw new IllegalArgumentException("expected a section");
+                }
+                definitions.add(compile(section));
+            } catch (IllegalArgumentException e) {
+                logger.log(Level.WARNING, "Skipping task '" + id + "' in " + file.getName() + ": " + e.getMessage());
+            }
+        }
+        return new TaskCatalog(Collections.unmodifiableList(definitions));
+    }
+
+    public int size() {
+        return definitions.size();
+    }
+
+    // Fresh task objects bound to one arena
+    public List<SimonTask> createTasks(TaskContext context) {
+        List<SimonTask> tasks = new ArrayList<>(definitions.size());
+        for (Definition definition : definitions) {
+            tasks.add(definition.create(context));
+        }
+        return tasks;
+    }
+
+    // A check that needs the live arena rather than a snapshot
+    private interface LiveCheck {
+        boolean test(Player player, TaskContext context);
+    }
+
+    private static final class Definition {
+        final String description;
+        final String hint;
+        final SimonTask.Cost cost;
+        final SimonTask.Difficulty difficulty;
+        final World.Environment environment; // Required dimension, or null
+        final boolean needsStorm;
+        final double zoneRadius;
+        final boolean needsChunk;
+        final Predicate<PlayerState> state; // null when the task has no state conditions
+        final LiveCheck[] liveChecks;
+        final Set<Class<? extends Entity>> entities;
+        final List<StatisticTracker.Key> statistics;
+
+        Definition(String description, String hint, SimonTask.Cost cost, SimonTask.Difficulty difficulty,
+                   World.Environment environment, boolean needsStorm, double zoneRadius, boolean needsChunk,
+                   Predicate<PlayerState> state, List<LiveCheck> liveChecks,
+                   Set<Class<? extends Entity>> entities, List<StatisticTracker.Key> statistics) {
+            this.description = description;
+            this.hint = hint;
+            this.cost = cost;
+            this.difficulty = difficulty;
+            this.environment = environment;
+            this.needsStorm = needsStorm;
+            this.zoneRadius = zoneRadius;
+            this.needsChunk = needsChunk;
+            this.state = state;
+            this.liveChecks = liveChecks.toArray(new LiveCheck[0]);
+            this.entities = entities;
+            this.statistics = statistics;
+        }
+
+        SimonTask create(TaskContext context) {
+            SimonTask task;
+            if (liveChecks.length == 0) {
+                task = SimonTask.fromSnapshot(description, state, hint);
+                if (needsChunk) {
+                    task.needsChunk();
+                }
+            } else {
+                // Live checks run on the main thread, so the state conditions read the player directly
+                LivePlayerState live = new LivePlayerState();
+                task = new SimonTask(description, player -> {
+                    for (LiveCheck check : liveChecks) {
+                        if (!check.test(player, context)) return false;
+                    }
+                    if (state == null) return true;
+                    try {
+                        return state.test(live.bind(player));
+                    } finally {
+                        live.bind(null);
+                    }
+                }, hint);
+            }
+
+            task.cost(cost)
+                    .difficulty(difficulty)
+                    .requiresZoneRadius(zoneRadius);
+            if (environment != null) {
+                task.requiresEnvironment(environment);
+            }
+            if (needsStorm) {
+                task.requiresStorm();
+            }
+            for (Class<? extends Entity> type : entities) {
+                task.watchEntities(type);
+            }
+            for (StatisticTracker.Key key : statistics) {
+                task.trackStatistic(key);
+            }
+            return task;
+        }
+    }
+
+    private static Definition compile(ConfigurationSection section) {
+        String description = section.getString("description");
+        if (description == null) {
+            throw new IllegalArgumentException("missing description");
+        }
+        String hint = section.getString("hint", "No hint provided.");
+
+        ConfigurationSection conditions = section.getConfigurationSection("conditions");
+        if (conditions == null) {
+            throw new IllegalArgumentException("missing conditions");
+        }
+
+        List<Predicate<PlayerState>> state = new ArrayList<>();
+        List<LiveCheck> live = new ArrayList<>();
+        Set<Class<? extends Entity>> entities = new HashSet<>();
+        List<StatisticTracker.Key> statistics = new ArrayList<>();
+        boolean needsChunk = false;
+        World.Environment requiredEnvironment = null;
+        boolean needsStorm = false;
+
+        for (String key : conditions.getKeys(false)) {
+            switch (key) {
+                case "on-ground": {
+                    boolean expected = conditions.getBoolean(key);
+                    state.add(s -> s.isOnGround() == expected);
+                    break;
+                }
+                case "sneaking": {
+                    boolean expected = conditions.getBoolean(key);
+                    state.add(s -> s.isSneaking() == expected);
+                    break;
+                }
+                case "sprinting": {
+                    boolean expected = conditions.getBoolean(key);
+                    state.add(s -> s.isSprinting() == expected);
+                    break;
+                }
+                case "swimming": {
+                    boolean expected = conditions.getBoolean(key);
+                    state.add(s -> s.isSwimming() == expected);
+                    break;
+                }
+                case "gliding": {
+                    boolean expected = conditions.getBoolean(key);
+                    state.add(s -> s.isGliding() == expected);
+                    break;
+                }
+                case "blocking": {
+                    boolean expected = conditions.getBoolean(key);
+                    state.add(s -> s.isBlocking() == expected);
+                    break;
+                }
+                case "storm": {
+                    boolean expected = conditions.getBoolean(key);
+                    state.add(s -> s.hasStorm() == expected);
+                    needsStorm = expected;
+                    break;
+                }
+                case "pitch-above": {
+                    double limit = conditions.getDouble(key);
+                    state.add(s -> s.getPitch() > limit);
+                    break;
+                }
+                case "pitch-below": {
+                    double limit = conditions.getDouble(key);
+                    state.add(s -> s.getPitch() < limit);
+                    break;
+                }
+                case "food-at-least": {
+                    int limit = conditions.getInt(key);
+                    state.add(s -> s.getFoodLevel() >= limit);
+                    break;
+                }
+                case "saturation-above": {
+                    double limit = conditions.getDouble(key);
+                    state.add(s -> s.getSaturation() > limit);
+                    break;
+                }
+                case "main-hand": {
+                    Material material = material(conditions.getString(key));
+                    state.add(s -> s.getMainHand() == material);
+                    break;
+                }
+                case "main-hand-enchantments": {
+                    int limit = conditions.getInt(key);
+                    state.add(s -> s.getMainHandEnchantments() >= limit);
+                    break;
+                }
+                case "helmet": {
+                    String name = conditions.getString(key);
+                    Material material = "NONE".equalsIgnoreCase(name) ? null : material(name);
+                    state.add(s -> s.getHelmet() == material);
+                    break;
+                }
+                case "items": {
+                    ConfigurationSection items = section(conditions, key);
+                    for (String name : items.getKeys(false)) {
+                        Material material = material(name);
+                        int amount = items.getInt(name, 1);
+                        state.add(s -> s.hasItem(material, amount));
+                    }
+                    break;
+                }
+                case "effects": {
+                    ConfigurationSection effects = section(conditions, key);
+                    for (String name : effects.getKeys(false)) {
+                        PotionEffectType type = effect(name);
+                        int amplifier = Math.max(1, effects.getInt(name, 1)) - 1; // Levels start at I
+                        state.add(s -> s.getEffectAmplifier(type) >= amplifier);
+                    }
+                    break;
+                }
+                case "no-effects": {
+                    for (String name : conditions.getStringList(key)) {
+                        PotionEffectType type = effect(name);
+                        state.add(s -> !s.hasEffect(type));
+                    }
+                    break;
+                }
+                case "effect-count": {
+                    int limit = conditions.getInt(key);
+                    state.add(s -> s.getEffectCount() >= limit);
+                    break;
+                }
+                case "environment": {
+                    World.Environment environment = enumValue(World.Environment.class, conditions.getString(key));
+                    state.add(s -> s.getEnvironment() == environment);
+                    requiredEnvironment = environment;
+                    break;
+                }
+                case "sky-light": {
+                    int limit = conditions.getInt(key);
+                    state.add(s -> s.getSkyLight() >= limit);
+                    needsChunk = true;
+                    break;
+                }
+                case "block-at-feet": {
+                    Material material = material(conditions.getString(key));
+                    state.add(s -> s.getBlockType(0, 0, 0) == material);
+                    needsChunk = true;
+                    break;
+                }
+                case "block-below": {
+                    Material material = material(conditions.getString(key));
+                    state.add(s -> s.getBlockType(0, -1, 0) == material);
+                    needsChunk = true;
+                    break;
+                }
+                case "nearby-entities": {
+                    ConfigurationSection nearby = section(conditions, key);
+                    for (String name : nearby.getKeys(false)) {
+                        Class<? extends Entity> type = entityClass(name);
+                        ConfigurationSection spec = section(nearby, name);
+                        int atLeast = spec.getInt("at-least", 1);
+                        List<Double> radius = spec.getDoubleList("radius");
+                        double rx = radius.isEmpty() ? spec.getDouble("radius", 5) : radius.get(0);
+                        double ry = radius.size() == 3 ? radius.get(1) : rx;
+                        double rz = radius.size() == 3 ? radius.get(2) : rx;
+                        entities.add(type);
+                        live.add((player, context) -> {
+                            int found = 0;
+                            for (Entity entity : context.nearbyEntities(player, rx, ry, rz)) {
+                                if (type.isInstance(entity) && ++found >= atLeast) return true;
+                            }
+                            return false;
+                        });
+                    }
+                    break;
+                }
+                case "statistics": {
+                    ConfigurationSection stats = section(conditions, key);
+                    for (String name : stats.getKeys(false)) {
+                        Statistic statistic = enumValue(Statistic.class, name);
+                        if (stats.isConfigurationSection(name)) {
+                            // Qualified statistics, e.g. KILL_ENTITY: {SKELETON: 1}
+                            ConfigurationSection qualified = stats.getConfigurationSection(name);
+                            for (String qualifier : qualified.getKeys(false)) {
+                                StatisticTracker.Key statKey = statisticKey(statistic, qualifier);
+                                statistics.add(statKey);
+                                live.add(statisticCheck(statKey, qualified.getInt(qualifier, 1)));
+                            }
+                        } else {
+                            if (statistic.getType() != Statistic.Type.UNTYPED) {
+                                throw new IllegalArgumentException(name + " needs a block, item or entity");
+                            }
+                            StatisticTracker.Key statKey = new StatisticTracker.Key(statistic, null, null);
+                            statistics.add(statKey);
+                            live.add(statisticCheck(statKey, stats.getInt(name, 1)));
+                        }
+                    }
+                    break;
+                }
+                default:
+                    throw new IllegalArgumentException("unknown condition '" + key + "'");
+            }
+        }
+
+        if (state.isEmpty() && live.isEmpty()) {
+            throw new IllegalArgumentException("no conditions");
+        }
+        Predicate<PlayerState> combined = null;
+        for (Predicate<PlayerState> check : state) {
+            combined = combined == null ? check : combined.and(check);
+        }
+
+        // Chunk captures and world queries cost more than reading player state
+        SimonTask.Cost defaultCost = needsChunk || !live.isEmpty() ? SimonTask.Cost.MODERATE : SimonTask.Cost.CHEAP;
+        SimonTask.Cost cost = section.contains("cost")
+                ? enumValue(SimonTask.Cost.class, section.getString("cost"))
+                : defaultCost;
+
+        SimonTask.Difficulty difficulty = section.contains("difficulty")
+                ? enumValue(SimonTask.Difficulty.class, section.getString("difficulty"))
+                : SimonTask.Difficulty.NORMAL;
+
+        // Dimension and storm conditions double as draw requirements, so such tasks
+        // are only drawn where they can be done
+        return new Definition(description, hint, cost, difficulty, requiredEnvironment, needsStorm,
+                section.getDouble("min-zone-radius", 0), needsChunk, combined, live, entities, statistics);
+    }
+
+    private static LiveCheck statisticCheck(StatisticTracker.Key key, int atLeast) {
+        return (player, context) -> context.statisticDelta(player, key) >= atLeast;
+    }
+
+    private static StatisticTracker.Key statisticKey(Statistic statistic, String qualifier) {
+        switch (statistic.getType()) {
+            case ENTITY:
+                return new StatisticTracker.Key(statistic, null, enumValue(EntityType.class, qualifier));
+            case BLOCK:
+            case ITEM:
+                return new StatisticTracker.Key(statistic, material(qualifier), null);
+            default:
+                throw new IllegalArgumentException(statistic + " takes no block, item or entity");
+        }
+    }
+
+    private static ConfigurationSection section(ConfigurationSection parent, String key) {
+        ConfigurationSection section = parent.getConfigurationSection(key);
+        if (section == null) {
+            throw new IllegalArgumentException("'" + key + "' must be a section");
+        }
+        return section;
+    }
+
+    private static Material material(String name) {
+        Material material = name == null ? null : Material.matchMaterial(name);
+        if (material == null) {
+            throw new IllegalArgumentException("unknown material '" + name + "'");
+        }
+        return material;
+    }
+
+    private static PotionEffectType effect(String name) {
+        PotionEffectType type = Registry.EFFECT.get(NamespacedKey.minecraft(name.toLowerCase(Locale.ROOT)));
+        if (type == null) {
+            throw new IllegalArgumentException("unknown effect '" + name + "'");
+        }
+        return type;
+    }
+
+    private static Class<? extends Entity> entityClass(String name) {
+        Class<? extends Entity> type = enumValue(EntityType.class, name).getEntityClass();
+        if (type == null) {
+            throw new IllegalArgumentException("entity '" + name + "' can't be looked up");
+        }
+        return type;
+    }
+
+    private static <E extends Enum<E>> E enumValue(Class<E> type, String name) {
+        if (name == null) {
+            throw new IllegalArgumentException("missing " + type.getSimpleName());
+        }
+        try {
+            return Enum.valueOf(type, name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("unknown " + type.getSimpleName() + " '" + name + "'");
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.wonkyfingers.simon;
+
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+
+import java.util.List;
+
+/**
+ * What a running arena offers the checks of catalog tasks, so one compiled
+ * catalog can be shared by every arena.
+ */
+public interface TaskContext {
+    // Entities of the task's watched types around the player, from this tick's grid
+    List<Entity> nearbyEntities(Player player, double rx, double ry, double rz);
+
+    // How much the statistic grew since the task started
+    int statisticDelta(Player player, StatisticTracker.Key key);
+}
@@ -0,0 +1,180 @@
+package com.wonkyfingers.simon;
+
+import java.util.BitSet;
+import java.util.random.RandomGenerator;
+
+/**
+ * Picks the tasks of a game. The caller says which tasks can be done in the
+ * arena right now (wrong dimension, no storm, zone too small), and the rest
+ * are drawn by weight from an alias table in constant time. A task is not
+ * drawn twice in one game until every feasible task has had its turn.
+ * Works on task indexes and weights only, so ReplayTool can redo the draws of
+ * a recorded game without a server.
+ */
+public class TaskDeck {
+    // Relative draw weights, indexed by enum ordinal
+    private static final double[] DIFFICULTY_WEIGHTS = {1.2, 1.0, 0.6}; // EASY, NORMAL, HARD
+    private static final double[] COST_WEIGHTS = {1.0, 0.8, 0.5};       // CHEAP, MODERATE, EXPENSIVE
+    private static final int DRAW_ATTEMPTS = 16;
+
+    private double[] weights = new double[0];
+    private final BitSet used = new BitSet();         // Drawn already this game
+    private final BitSet feasibleSet = new BitSet();  // What the alias table was built for
+
+    // Feasible task indexes and the alias table over them
+    private int[] feasible = new int[0];
+    private int[] positions = new int[0]; // Position in feasible per task, or -1
+    private int feasibleCount;
+    private int lastDrawn = -1;
+    private double[] probability = new double[0];
+    private int[] alias = new int[0];
+
+    // Draw weight of a task from its SimonTask.Difficulty and SimonTask.Cost ordinals
+    public static double weightOf(int difficulty, int cost) {
+        return DIFFICULTY_WEIGHTS[difficulty] * COST_WEIGHTS[cost];
+    }
+
+    public void setWeights(double[] taskWeights) {
+        weights = taskWeights.clone();
+        used.clear();
+        feasibleSet.clear();
+        feasible = new int[weights.length];
+        positions = new int[weights.length];
+        probability = new double[weights.length];
+        alias = new int[weights.length];
+        feasibleCount = 0;
+        lastDrawn = -1;
+    }
+
+    public double[] getWeights() {
+        return weights.clone();
+    }
+
+    public int size() {
+        return weights.length;
+    }
+
+    // Starts a new game: every task is available again
+    public void reset() {
+        used.clear();
+    }
+
+    /**
+     * Draws the index of the next task out of the feasible ones, or -1 if none is
+     * feasible. Nothing is drawn from the random in that case.
+     */
+    public int draw(BitSet feasibleTasks, RandomGenerator random) {
+        refresh(feasibleTasks);
+        if (feasibleCount == 0) return -1;
+
+        for (int attempt = 0; attempt < DRAW_ATTEMPTS; attempt++) {
+            int index = feasible[sample(random)];
+            if (!used.get(index)) {
+                return take(index);
+            }
+        }
+
+        // Mostly used up: take any unused feasible task, or start the rotation over
+        int start = random.nextInt(feasibleCount);
+        for (int k = 0; k < feasibleCount; k++) {
+            int index = feasible[(start + k) % feasibleCount];
+            if (!used.get(index)) {
+                return take(index);
+            }
+        }
+        used.clear();
+        return take(feasible[sample(random)]);
+    }
+
+    private int take(int index) {
+        used.set(index);
+        lastDrawn = index;
+        return index;
+    }
+
+    /**
+     * A feasible task other than the one drawn last, uniformly, from the last
+     * draw's filter. Returns -1 if there is none.
+     */
+    public int drawOther(RandomGenerator random) {
+        int self = lastDrawn < 0 ? -1 : positions[lastDrawn];
+        int choices = self < 0 ? feasibleCount : feasibleCount - 1;
+        if (choices <= 0) return -1;
+
+        // Skip over the task itself instead of copying the list without it
+        int pick = random.nextInt(choices);
+        if (self >= 0 && pick >= self) {
+            pick++;
+        }
+        return feasible[pick];
+    }
+
+    // Rebuilds the alias table if the set of feasible tasks changed since the last draw
+    private void refresh(BitSet feasibleTasks) {
+        if (feasibleTasks.equals(feasibleSet) && feasibleCount > 0) return;
+
+        feasibleSet.clear();
+        feasibleSet.or(feasibleTasks);
+        feasibleCount = 0;
+        for (int i = 0; i < weights.length; i++) {
+            if (feasibleTasks.get(i)) {
+                positions[i] = feasibleCount;
+                feasible[feasibleCount++] = i;
+            } else {
+                positions[i] = -1;
+            }
+        }
+        buildAliasTable();
+    }
+
+    // Vose's alias method over the feasible tasks
+    private void buildAliasTable() {
+        int n = feasibleCount;
+        if (n == 0) return;
+
+        double total = 0;
+        for (int k = 0; k < n; k++) {
+            total += weights[feasible[k]];
+        }
+
+        double[] scaled = new double[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smallCount = 0;
+        int largeCount = 0;
+        for (int k = 0; k < n; k++) {
+            scaled[k] = weights[feasible[k]] * n / total;
+            if (scaled[k] < 1.0) {
+                small[smallCount++] = k;
+            } else {
+                large[largeCount++] = k;
+            }
+        }
+
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+            probability[less] = scaled[less];
+            alias[less] = more;
+            scaled[more] = scaled[more] + scaled[less] - 1.0;
+            if (scaled[more] < 1.0) {
+                small[smallCount++] = more;
+            } else {
+                large[largeCount++] = more;
+            }
+        }
+        // Whatever is left is full up to rounding
+        while (largeCount > 0) {
+            probability[large[--largeCount]] = 1.0;
+        }
+        while (smallCount > 0) {
+            probability[small[--smallCount]] = 1.0;
+        }
+    }
+
+    // Position in feasible[] of a weighted random task
+    private int sample(RandomGenerator random) {
+        int column = random.nextInt(feasibleCount);
+        return random.nextDouble() < probability[column] ? column : alias[column];
+    }
+}
@@ -0,0 +1,77 @@
+package com.wonkyfingers.simon;
+
+import org.bukkit.entity.Player;
+
+import java.util.Arrays;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Spreads a pass of task checks over several ticks. Each pass visits every
+ * participant once; a round-robin cursor carries over between passes, so when a
+ * pass runs out of time the players it didn't reach go first in the next one.
+ * Players are kept in slot order with their slots, so a check never has to
+ * look the slot up.
+ */
+public class TaskEvaluator {
+    private Player[] players = new Player[16];
+    private int[] slots = new int[16];
+    private int count;
+    private int cursor;
+    private int pending; // Players still to visit in this pass
+
+    /**
+     * Starts a pass over the online players of the arena.
+     *
+     * @param bySlot online player per slot, null for slots that are offline
+     */
+    public void beginPass(Player[] bySlot, int slotCount) {
+        if (players.length < slotCount) {
+            players = new Player[slotCount];
+            slots = new int[slotCount];
+        }
+        count = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (bySlot[slot] != null) {
+                players[count] = bySlot[slot];
+                slots[count++] = slot;
+            }
+        }
+        Arrays.fill(players, count, players.length, null);
+        pending = count;
+        if (cursor >= count) {
+            cursor = 0;
+        }
+    }
+
+    /**
+     * Checks players until the pass is done or the budget is spent. At least one
+     * player is checked per call so a single slow predicate can't stall the pass.
+     */
+    public void run(long budgetNanos, ObjIntConsumer<Player> check) {
+        long start = System.nanoTime();
+        while (pending > 0) {
+            Player player = players[cursor];
+            int slot = slots[cursor];
+            cursor = (cursor + 1) % count;
+            pending--;
+
+            if (player.isOnline()) {
+                check.accept(player, slot);
+            }
+            if (System.nanoTime() - start >= budgetNanos) {
+                break;
+            }
+        }
+    }
+
+    public boolean isPassComplete() {
+        return pending == 0;
+    }
+
+    public void reset() {
+        Arrays.fill(players, 0, count, null);
+        count = 0;
+        cursor = 0;
+        pending = 0;
+    }
+}
@@ -1,18 +1,182 @@
 package com.wonkyfingers.simon;
 
+import org.bukkit.Material;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Event;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockPhysicsEvent;
+import org.bukkit.event.block.BlockPistonExtendEvent;
+import org.bukkit.event.block.BlockPistonRetractEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.entity.EntityMountEvent;
+import org.bukkit.event.entity.ProjectileLaunchEvent;
+import org.bukkit.event.inventory.CraftItemEvent;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryType;
 import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerPickupArrowEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerSwapHandItemsEvent;
+import org.bukkit.event.player.PlayerToggleSneakEvent;
+import org.bukkit.event.player.PlayerToggleSprintEvent;
+import org.bukkit.inventory.MerchantInventory;
 
+/**
+ * Forwards the events that tasks can react to into the arena the player is in.
+ * Everything runs at MONITOR so only actions that actually happened count.
+ */
 public class TaskListener implements Listener {
-    private final TaskManager taskManager;
+    private final ArenaManager arenaManager;
 
-    public TaskListener(TaskManager taskManager) {
-        this.taskManager = taskManager;
+    public TaskListener(ArenaManager arenaManager) {
+        this.arenaManager = arenaManager;
     }
 
+    private void dispatch(Player player, Event event) {
+        Arena arena = arenaManager.getArena(player);
+        if (arena != null) {
+            arena.getTaskManager().handleEvent(player, event);
+        }
+    }
+
+    // Block changes can come from anyone, so every running arena's index hears about them
+    private void markDirty(Block block) {
+        for (Arena arena : arenaManager.getArenas()) {
+            if (arena.isRunning()) {
+                arena.getTaskManager().getBlockIndex().markDirty(block);
+            }
+        }
+    }
+
+    // A rejoining participant is a new Player object, so the arena has to pick it up again
     @EventHandler
     public void onPlayerJoin(PlayerJoinEvent event) {
-        // Add any necessary player initialization here
+        Arena arena = arenaManager.getArena(event.getPlayer());
+        if (arena != null) {
+            arena.playerJoined(event.getPlayer());
+        }
+    }
+
+    @EventHandler
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        Arena arena = arenaManager.getArena(event.getPlayer());
+        if (arena != null) {
+            arena.playerQuit(event.getPlayer());
+        }
+    }
+
+    // Feeds the motion history that the movement tasks read, and moves sequences along
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerMove(PlayerMoveEvent event) {
+        Arena arena = arenaManager.getArena(event.getPlayer());
+        if (arena != null && arena.isRunning() && event.getTo() != null) {
+            // One slot lookup per move, shared by the motion history and the task
+            int slot = arena.getSlots().slotOf(event.getPlayer().getUniqueId());
+            arena.recordMotion(event.getPlayer(), slot, event.getTo());
+            arena.getTaskManager().handleEvent(event.getPlayer(), slot, event);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onSwapHands(PlayerSwapHandItemsEvent event) {
+        dispatch(event.getPlayer(), event);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onCraftItem(CraftItemEvent event) {
+        if (event.getWhoClicked() instanceof Player) {
+            dispatch((Player) event.getWhoClicked(), event);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPickupArrow(PlayerPickupArrowEvent event) {
+        dispatch(event.getPlayer(), event);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onToggleSneak(PlayerToggleSneakEvent event) {
+        dispatch(event.getPlayer(), event);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onToggleSprint(PlayerToggleSprintEvent event) {
+        dispatch(event.getPlayer(), event);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onMount(EntityMountEvent event) {
+        if (event.getEntity() instanceof Player) {
+            dispatch((Player) event.getEntity(), event);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onProjectileLaunch(ProjectileLaunchEvent event) {
+        if (event.getEntity().getShooter() instanceof Player) {
+            dispatch((Player) event.getEntity().getShooter(), event);
+        }
+    }
+
+    // Taking the result out of a villager's trade window is a completed trade
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onInventoryClick(InventoryClickEvent event) {
+        if (event.getInventory() instanceof MerchantInventory
+                && event.getSlotType() == InventoryType.SlotType.RESULT
+                && event.getCurrentItem() != null
+                && event.getCurrentItem().getType() != Material.AIR
+                && event.getWhoClicked() instanceof Player) {
+            dispatch((Player) event.getWhoClicked(), event);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockPlace(BlockPlaceEvent event) {
+        markDirty(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBreak(BlockBreakEvent event) {
+        markDirty(event.getBlock());
+    }
+
+    // Fires for every neighbour update on the server, so only blocks some task watches go further
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockPhysics(BlockPhysicsEvent event) {
+        Material changed = event.getChangedType();
+        Material current = null;
+        for (Arena arena : arenaManager.getArenas()) {
+            if (!arena.isRunning()) continue;
+            BlockIndex index = arena.getTaskManager().getBlockIndex();
+            if (!index.isWatching()) continue;
+            if (current == null) {
+                current = event.getBlock().getType();
+            }
+            if (index.isWatched(changed) || index.isWatched(current)) {
+                index.markDirty(event.getBlock());
+            }
+        }
+    }
+
+    // Moved blocks leave their old spot and fill the one in the push direction
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPistonExtend(BlockPistonExtendEvent event) {
+        for (Block block : event.getBlocks()) {
+            markDirty(block);
+            markDirty(block.getRelative(event.getDirection()));
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPistonRetract(BlockPistonRetractEvent event) {
+        for (Block block : event.getBlocks()) {
+            markDirty(block);
+            markDirty(block.getRelative(event.getDirection()));
+        }
     }
-}
\ No newline at end of file
+}
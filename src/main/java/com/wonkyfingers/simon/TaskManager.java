@@ -1,32 +1,27 @@
 package com.wonkyfingers.simon;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.BitSet;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
-import java.util.Set;
-import java.util.UUID;
-import java.util.Arrays;
-import java.util.Objects;
-import java.util.stream.Stream;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.IntStream;
+import java.util.logging.Level;
 
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.DyeColor;
 import org.bukkit.Location;
 import org.bukkit.Particle;
 import org.bukkit.Sound;
 import org.bukkit.boss.BarColor;
-import org.bukkit.boss.BarStyle;
-import org.bukkit.boss.BossBar;
 import org.bukkit.entity.Player;
-import org.bukkit.inventory.ItemStack;
 import org.bukkit.potion.PotionEffect;
 import org.bukkit.potion.PotionEffectType;
-import org.bukkit.scheduler.BukkitRunnable;
 import org.bukkit.Material;
+import org.bukkit.Tag;
 import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.block.BlockFace;
@@ -34,39 +29,56 @@ import org.bukkit.block.data.Ageable;
 import org.bukkit.enchantments.Enchantment;
 import org.bukkit.entity.Bee;
 import org.bukkit.entity.Entity;
+import org.bukkit.entity.Item;
 import org.bukkit.entity.Monster;
 import org.bukkit.entity.Sheep;
 import org.bukkit.entity.Strider;
 import org.bukkit.entity.TNTPrimed;
 import org.bukkit.entity.Tameable;
-import org.bukkit.entity.Villager;
-import org.bukkit.inventory.Inventory;
-import org.bukkit.Statistic;
-import org.bukkit.entity.EntityType;
-
-public class TaskManager {
+import org.bukkit.entity.Trident;
+import org.bukkit.event.Event;
+import org.bukkit.event.entity.EntityMountEvent;
+import org.bukkit.event.entity.ProjectileLaunchEvent;
+import org.bukkit.event.inventory.CraftItemEvent;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerPickupArrowEvent;
+import org.bukkit.event.player.PlayerSwapHandItemsEvent;
+import org.bukkit.event.player.PlayerToggleSneakEvent;
+
+public class TaskManager implements TaskContext {
     private final Simon plugin;
+    private final Arena arena;
+    private final GameClock clock;
     private final List<SimonTask> availableTasks;
+    private final List<SimonTask> builtinTasks = new ArrayList<>(); // The ones written in initializeTasks()
+    private TaskCatalog pendingCatalog; // Swapped in once the current task is over
+    private final TaskDeck deck = new TaskDeck(); // Draws indexes into availableTasks
+    private final BitSet feasibleTasks = new BitSet();
     private SimonTask currentTask;
     private SimonTask contradictoryTask;
-    private final Map<UUID, TaskProgress> playerProgress;
-    private BukkitRunnable taskTimer;
-    private BossBar taskBar;
+    private final ParticipantProgress progress = new ParticipantProgress();
+    private GameClock.Job taskTimer;
+    private GameClock.Job evaluatorJob;
+    private final TaskEvaluator evaluator = new TaskEvaluator();
+    private final ObjIntConsumer<Player> playerCheck = this::checkPlayer;
+    private Player checkedPlayer;          // Player whose check or event is running, and their slot,
+    private int checkedSlot = -1;          // so predicates don't look the slot up again
+    private final BlockIndex blockIndex;
+    private final EntityGrid entityGrid = new EntityGrid();
+    private final StatisticTracker statistics;
+    private final Broadcaster broadcaster;
+    private long lastSliceTick = -1;
+    private int taskRound;                 // Bumped per task so late parallel verdicts can be dropped
+    private boolean parallelPassRunning;
+    private final TaskBar taskBar = new TaskBar();
+    private long taskEndTick;              // Tick the current task's countdown runs out
     private boolean isSimonSaysTask;
     private boolean hasContradictoryCommand;
 
     private static final long[] TASK_TIMINGS = {60, 120, 180, 240, 300, 360, 420, 480, 540, 600, 660, 720, 780, 840, 900, 960, 1020}; // Task timing intervals
     private static final long TASK_DURATION = 15; // Reduced to 15 seconds for faster gameplay
-
-    private static class TaskProgress {
-        boolean completed;
-        Set<String> completedSubtasks;
-
-        TaskProgress() {
-            this.completed = false;
-            this.completedSubtasks = new HashSet<>();
-        }
-    }
+    private static final int MATERIAL_COUNT = Material.values().length; // Kinds for distinct-item tasks
 
     // Enhanced command prefixes for more variety
     private static final String[] COMMAND_PREFIXES = {
@@ -98,88 +110,76 @@ public class TaskManager {
             "silently"
     };
 
-    public TaskManager(Simon plugin) {
+    public TaskManager(Simon plugin, Arena arena) {
         this.plugin = plugin;
+        this.arena = arena;
+        this.clock = arena.getClock();
         this.availableTasks = new ArrayList<>();
-        this.playerProgress = new HashMap<>();
+        this.blockIndex = new BlockIndex(plugin);
+        this.statistics = new StatisticTracker(arena.getSlots());
+        this.broadcaster = new Broadcaster(clock, () -> arena.getGameSetup().getConfig().getBroadcastBatchSize());
         initializeTasks();
+        this.pendingCatalog = plugin.getTaskCatalog();
+        applyPendingCatalog();
     }
 
     private void initializeTasks() {
         // Basic Movement Tasks
-        availableTasks.add(new SimonTask("Jump and Sneak",
-                player -> !player.isOnGround() && player.isSneaking(),
-                "Perform both actions simultaneously"));
-
-        availableTasks.add(new SimonTask("Look Up While Running",
-                player -> player.getLocation().getPitch() < -80 && player.isSprinting(),
-                "Sprint while looking at the sky"));
+        builtinTasks.add(SimonTask.fromSnapshot("Jump and Sneak",
+                snapshot -> !snapshot.isOnGround() && snapshot.isSneaking(),
+                "Perform both actions simultaneously")
+                .onEvent(PlayerToggleSneakEvent.class, (player, event) -> event.isSneaking() && !player.isOnGround())
+                .difficulty(SimonTask.Difficulty.EASY));
 
         // Item Interaction Tasks
-        availableTasks.add(new SimonTask("Switch Hands Three Times",
-                player -> {
-                    ItemStack mainHand = player.getInventory().getItemInMainHand();
-                    ItemStack offHand = player.getInventory().getItemInOffHand();
-                    player.getInventory().setItemInOffHand(mainHand);
-                    player.getInventory().setItemInMainHand(offHand);
-                    return true; // This is simplified, you'd need to track the switches
-                },
-                "Swap items between main and off hand"));
+        builtinTasks.add(new SimonTask("Switch Hands Three Times",
+                "Swap items between main and off hand")
+                .onEvent(PlayerSwapHandItemsEvent.class, (player, event) -> true)
+                .times(3)
+                .difficulty(SimonTask.Difficulty.EASY));
 
-        availableTasks.add(new SimonTask("Drop and Catch an Item",
+        builtinTasks.add(new SimonTask("Drop and Catch an Item",
                 player -> {
                     Location loc = player.getLocation();
-                    return loc.getWorld().getEntitiesByClass(org.bukkit.entity.Item.class)
-                            .stream()
-                            .anyMatch(item -> item.getLocation().distance(loc) < 2);
+                    for (Entity item : nearbyEntities(player, 2, 2, 2)) {
+                        if (item.getLocation().distanceSquared(loc) < 4) return true;
+                    }
+                    return false;
                 },
-                "Drop an item and pick it up before it hits the ground"));
+                "Drop an item and pick it up before it hits the ground")
+                .watchEntities(Item.class)
+                .cost(SimonTask.Cost.MODERATE));
 
         // Environment Interaction Tasks
-        availableTasks.add(new SimonTask("Stand Between Two Blocks",
+        builtinTasks.add(new SimonTask("Stand Between Two Blocks",
                 player -> {
                     Location loc = player.getLocation();
                     Location blockBehind = loc.clone().add(0, 0, 1);
                     Location blockInFront = loc.clone().add(0, 0, -1);
                     return !blockBehind.getBlock().isEmpty() && !blockInFront.getBlock().isEmpty();
                 },
-                "Position yourself with blocks on both sides"));
-
-        // Complex Movement Tasks
-        availableTasks.add(new SimonTask("Sprint Jump While Looking Down",
-                player -> player.isSprinting() && !player.isOnGround() && player.getLocation().getPitch() > 80,
-                "Combination of sprinting, jumping, and looking down"));
+                "Position yourself with blocks on both sides")
+                .cost(SimonTask.Cost.MODERATE));
 
         // Multi-step Tasks
-        availableTasks.add(new SimonTask("Perform The Dance",
-                player -> {
-                    TaskProgress progress = playerProgress.get(player.getUniqueId());
-                    if (progress.completedSubtasks.size() == 3) return true;
-
-                    if (!player.isOnGround()) {
-                        progress.completedSubtasks.add("jump");
-                    }
-                    if (player.isSneaking()) {
-                        progress.completedSubtasks.add("sneak");
-                    }
-                    if (player.isSprinting()) {
-                        progress.completedSubtasks.add("sprint");
-                    }
-
-                    return progress.completedSubtasks.size() == 3;
-                },
-                "Jump, then sneak, then sprint"));
+        builtinTasks.add(new SimonTask("Perform The Dance",
+                "Jump, then sneak, then sprint")
+                .sequence(TaskSequence.builder()
+                        .then(TaskSequence.AIRBORNE)
+                        .then(TaskSequence.SNEAKING, 60)
+                        .then(TaskSequence.SPRINTING, 60)
+                        .build()));
 
         // Inventory Tasks
-        availableTasks.add(new SimonTask("Organize Your Hotbar",
-                player -> {
+        builtinTasks.add(SimonTask.fromSnapshot("Organize Your Hotbar",
+                snapshot -> {
                     // Check if items are sorted by material name
                     boolean sorted = true;
                     String prevName = "";
                     for (int i = 0; i < 9; i++) {
-                        ItemStack item = player.getInventory().getItem(i);
+                        Material item = snapshot.getHotbar(i);
                         if (item != null) {
-                            String currentName = item.getType().name();
+                            String currentName = item.name();
                             if (prevName.compareTo(currentName) > 0) {
                                 sorted = false;
                                 break;
@@ -189,170 +189,192 @@ public class TaskManager {
                     }
                     return sorted;
                 },
-                "Sort your hotbar items alphabetically"));
+                "Sort your hotbar items alphabetically")
+                .cost(SimonTask.Cost.MODERATE));
 
         // Combat & PVE Tasks
-        availableTasks.add(new SimonTask("Perfect Block",
-                player -> player.isBlocking() && player.getNearbyEntities(3, 3, 3).stream()
-                        .anyMatch(e -> e instanceof Monster),
-                "Block an attack from a monster with perfect timing"));
-
-        availableTasks.add(new SimonTask("Arrow Catch",
+        builtinTasks.add(new SimonTask("Perfect Block",
                 player -> {
-                    return player.getStatistic(Statistic.PICKUP, Material.ARROW) > 0;
-                },
-                "Catch an arrow mid-flight"));
-        // Parkour Tasks
-        availableTasks.add(new SimonTask("Wall Run",
-                player -> {
-                    Location loc = player.getLocation();
-                    return !player.isOnGround() && loc.getBlock().getRelative(BlockFace.NORTH).getType().isSolid();
+                    if (!player.isBlocking()) return false;
+                    for (Entity entity : nearbyEntities(player, 3, 3, 3)) {
+                        if (entity instanceof Monster) return true;
+                    }
+                    return false;
                 },
-                "Run along a wall without touching the ground"));
+                "Block an attack from a monster with perfect timing")
+                .watchEntities(Monster.class)
+                .cost(SimonTask.Cost.MODERATE));
 
-        availableTasks.add(new SimonTask("Precise Landing",
-                player -> {
-                    Location loc = player.getLocation();
-                    return loc.getBlock().getType() == Material.GOLD_BLOCK &&
-                            !player.getLocation().add(0, -1, 0).getBlock().getType().isSolid();
+        builtinTasks.add(new SimonTask("Arrow Catch",
+                "Catch an arrow mid-flight")
+                .onEvent(PlayerPickupArrowEvent.class, (player, event) -> true));
+        // Parkour Tasks
+        // Checked on every move, since the moment only lasts until the player lands
+        builtinTasks.add(new SimonTask("Wall Run",
+                "Run along a wall without touching the ground")
+                .onEvent(PlayerMoveEvent.class, (player, event) -> {
+                    // Half a second off the ground, covering distance, with a wall beside you
+                    int slot = slotOf(player);
+                    long now = clock.getTick();
+                    if (motion().airtime(slot, now) < 10 || motion().horizontalDistance(slot, now, 10) < 2.5) return false;
+                    Location loc = event.getTo();
+                    World world = player.getWorld();
+                    int x = loc.getBlockX();
+                    int y = loc.getBlockY();
+                    int z = loc.getBlockZ();
+                    return world.getBlockAt(x + 1, y, z).getType().isSolid() ||
+                            world.getBlockAt(x - 1, y, z).getType().isSolid() ||
+                            world.getBlockAt(x, y, z + 1).getType().isSolid() ||
+                            world.getBlockAt(x, y, z - 1).getType().isSolid();
+                })
+                .cost(SimonTask.Cost.MODERATE));
+
+        builtinTasks.add(SimonTask.fromSnapshot("Precise Landing",
+                snapshot -> {
+                    Material below = snapshot.getBlockType(0, -1, 0);
+                    return snapshot.getBlockType(0, 0, 0) == Material.GOLD_BLOCK &&
+                            below != null && !below.isSolid();
                 },
-                "Land exactly on a gold block"));
+                "Land exactly on a gold block")
+                .needsChunk()
+                .cost(SimonTask.Cost.MODERATE));
 
         // Environmental Interaction
-        availableTasks.add(new SimonTask("Water Walk",
-                player -> {
-                    Location loc = player.getLocation();
-                    return loc.add(0, -1, 0).getBlock().getType() == Material.WATER &&
-                            player.getVelocity().getY() >= 0;
+        builtinTasks.add(SimonTask.fromSnapshot("Water Walk",
+                snapshot -> {
+                    return snapshot.getBlockType(0, -1, 0) == Material.WATER &&
+                            snapshot.getVelocityY() >= 0;
                 },
-                "Walk on water using lily pads or frost walker"));
+                "Walk on water using lily pads or frost walker")
+                .needsChunk()
+                .cost(SimonTask.Cost.MODERATE));
 
-        availableTasks.add(new SimonTask("Torch Placer",
+        builtinTasks.add(new SimonTask("Torch Placer",
                 player -> {
                     Location loc = player.getLocation();
                     return loc.getWorld().getBlockAt(loc).getLightLevel() > 10;
                 },
-                "Place torches to achieve maximum brightness"));
+                "Place torches to achieve maximum brightness")
+                .cost(SimonTask.Cost.MODERATE));
 
         // Building Tasks
-        availableTasks.add(new SimonTask("Quick Builder",
+        builtinTasks.add(new SimonTask("Quick Builder",
                 player -> {
                     Location loc = player.getLocation();
-                    int blockCount = 0;
+                    World world = player.getWorld();
+                    int baseX = loc.getBlockX();
+                    int baseY = loc.getBlockY() - 1;
+                    int baseZ = loc.getBlockZ();
                     for (int x = -1; x <= 1; x++) {
                         for (int z = -1; z <= 1; z++) {
-                            if (loc.clone().add(x, -1, z).getBlock().getType().isSolid()) {
-                                blockCount++;
+                            if (!world.getBlockAt(baseX + x, baseY, baseZ + z).getType().isSolid()) {
+                                return false;
                             }
                         }
                     }
-                    return blockCount >= 9;
+                    return true;
                 },
-                "Build a 3x3 platform in under 5 seconds"));
+                "Build a 3x3 platform in under 5 seconds")
+                .cost(SimonTask.Cost.EXPENSIVE));
 
         // Inventory Management
-        availableTasks.add(new SimonTask("Color Coordinator",
-                player -> {
-                    ItemStack[] armor = player.getInventory().getArmorContents();
-                    if (armor[0] == null || armor[1] == null || armor[2] == null || armor[3] == null) return false;
-                    Material color = armor[0].getType();
-                    for (ItemStack item : armor) {
-                        if (item.getType().name().contains(color.name())) return false;
+        builtinTasks.add(SimonTask.fromSnapshot("Color Coordinator",
+                snapshot -> {
+                    for (int i = 0; i < 4; i++) {
+                        if (snapshot.getArmor(i) == null) return false;
+                    }
+                    Material color = snapshot.getArmor(0);
+                    for (int i = 0; i < 4; i++) {
+                        if (snapshot.getArmor(i).name().contains(color.name())) return false;
                     }
                     return true;
                 },
-                "Wear a complete set of matching colored armor"));
+                "Wear a complete set of matching colored armor")
+                .cost(SimonTask.Cost.MODERATE));
 
         // Advanced Movement
-        availableTasks.add(new SimonTask("360 No Scope",
-                player -> {
-                    float yaw = player.getLocation().getYaw();
-                    return !player.isOnGround() && Math.abs(yaw - player.getLocation().getYaw()) >= 360;
-                },
-                "Perform a 360-degree spin while in the air"));
+        // Checked on every move, since the spin only counts until the player lands
+        builtinTasks.add(new SimonTask("360 No Scope",
+                "Perform a 360-degree spin while in the air")
+                .onEvent(PlayerMoveEvent.class, (player, event) ->
+                        motion().airborneRotation(slotOf(player), clock.getTick(), MotionHistory.CAPACITY) >= 360));
 
-        availableTasks.add(new SimonTask("Dolphin Dive",
+        builtinTasks.add(new SimonTask("Dolphin Dive",
                 player -> {
-                    Location loc = player.getLocation();
-                    return player.isSwimming() &&
-                            loc.getPitch() < -30 &&
-                            loc.getBlock().getType() == Material.WATER;
+                    // In the water now, after dropping into it from the air within the last two seconds
+                    int slot = slotOf(player);
+                    long now = clock.getTick();
+                    return player.isInWater() &&
+                            motion().seen(slot, now, 40, MotionHistory.IN_WATER | MotionHistory.ON_GROUND, 0) &&
+                            motion().verticalDrop(slot, now, 40) >= 3;
                 },
                 "Dive into water like a dolphin"));
 
         // Tool Usage
-        availableTasks.add(new SimonTask("Tool Master",
-                player -> {
-                    ItemStack item = player.getInventory().getItemInMainHand();
-                    return item != null &&
-                            item.getType().name().endsWith("_PICKAXE") &&
-                            item.getEnchantments().size() >= 3;
+        builtinTasks.add(SimonTask.fromSnapshot("Tool Master",
+                snapshot -> {
+                    return snapshot.getMainHand().name().endsWith("_PICKAXE") &&
+                            snapshot.getMainHandEnchantments() >= 3;
                 },
                 "Use a pickaxe with at least 3 enchantments"));
 
-        // Weather Related
-        availableTasks.add(new SimonTask("Lightning Rod",
-                player -> {
-                    Location loc = player.getLocation();
-                    return loc.getWorld().hasStorm() &&
-                            loc.getBlock().getLightFromSky() == 15 &&
-                            player.getInventory().getHelmet() != null &&
-                            player.getInventory().getHelmet().getType() == Material.LIGHTNING_ROD;
-                },
-                "Stand in the rain with a lightning rod on your head"));
-
         // Crafting Tasks
-        availableTasks.add(new SimonTask("Speed Crafter",
-                player -> {
-                    // This would need additional implementation to track crafting speed
-                    return player.getStatistic(Statistic.CRAFT_ITEM) > 0;
-                },
-                "Craft 3 different items within 10 seconds"));
+        builtinTasks.add(new SimonTask("Speed Crafter",
+                "Craft 3 different items within 10 seconds")
+                .onEvent(CraftItemEvent.class, (player, event) -> progress.addDistinct(slotOf(player),
+                        event.getRecipe().getResult().getType().ordinal(), MATERIAL_COUNT))
+                .times(3));
 
         // Pet Interaction
-        availableTasks.add(new SimonTask("Pet Parade",
+        builtinTasks.add(new SimonTask("Pet Parade",
                 player -> {
-                    int tamedAnimals = (int) player.getNearbyEntities(5, 5, 5).stream()
-                            .filter(e -> e instanceof Tameable && ((Tameable) e).isTamed() &&
-                                    ((Tameable) e).getOwner().equals(player))
-                            .count();
+                    int tamedAnimals = 0;
+                    for (Entity entity : nearbyEntities(player, 5, 5, 5)) {
+                        Tameable pet = (Tameable) entity;
+                        if (pet.isTamed() && player.equals(pet.getOwner())) {
+                            tamedAnimals++;
+                        }
+                    }
                     return tamedAnimals >= 3;
                 },
-                "Have 3 tamed animals following you simultaneously"));
+                "Have 3 tamed animals following you simultaneously")
+                .watchEntities(Tameable.class)
+                .cost(SimonTask.Cost.MODERATE));
 
         // Redstone Engineering
-        availableTasks.add(new SimonTask("Circuit Builder",
+        builtinTasks.add(new SimonTask("Circuit Builder",
                 player -> {
                     Location loc = player.getLocation();
-                    int redstoneCount = 0;
-                    for (int x = -2; x <= 2; x++) {
-                        for (int z = -2; z <= 2; z++) {
-                            if (loc.clone().add(x, 0, z).getBlock().getType() == Material.REDSTONE_WIRE) {
-                                redstoneCount++;
-                            }
-                        }
-                    }
-                    return redstoneCount >= 5;
+                    int x = loc.getBlockX();
+                    int y = loc.getBlockY();
+                    int z = loc.getBlockZ();
+                    return blockIndex.count(Material.REDSTONE_WIRE, x - 2, y, z - 2, x + 2, y, z + 2) >= 5;
                 },
-                "Create a working redstone circuit"));
+                "Create a working redstone circuit")
+                .watchBlocks(Material.REDSTONE_WIRE)
+                .cost(SimonTask.Cost.EXPENSIVE));
 
         // Social Tasks
-        availableTasks.add(new SimonTask("Trade Master",
-                player -> {
-                    return player.getNearbyEntities(5, 5, 5).stream()
-                            .anyMatch(e -> e instanceof Villager &&
-                                    ((Villager) e).getProfession() != Villager.Profession.NONE);
-                },
-                "Successfully trade with a villager"));
+        builtinTasks.add(new SimonTask("Trade Master",
+                "Successfully trade with a villager")
+                .onEvent(InventoryClickEvent.class, (player, event) -> true));
 
         // Farming Tasks
-        availableTasks.add(new SimonTask("Crop Harvester",
+        builtinTasks.add(new SimonTask("Crop Harvester",
         player -> {
             Location loc = player.getLocation();
+            int baseX = loc.getBlockX();
+            int baseY = loc.getBlockY();
+            int baseZ = loc.getBlockZ();
+            // The index knows where the wheat is; only its age needs a world read
+            if (blockIndex.count(Material.WHEAT, baseX - 2, baseY, baseZ - 2, baseX + 2, baseY, baseZ + 2) < 3) {
+                return false;
+            }
+            World world = player.getWorld();
             int cropCount = 0;
             for (int x = -2; x <= 2; x++) {
                 for (int z = -2; z <= 2; z++) {
-                    Block block = loc.clone().add(x, 0, z).getBlock();
+                    Block block = world.getBlockAt(baseX + x, baseY, baseZ + z);
                     if (block.getType() == Material.WHEAT && 
                         block.getBlockData() instanceof Ageable) {
                         Ageable crop = (Ageable) block.getBlockData();
@@ -364,255 +386,179 @@ public class TaskManager {
             }
             return cropCount >= 3;
         },
-        "Harvest 3 fully grown wheat crops"));
+        "Harvest 3 fully grown wheat crops")
+                .watchBlocks(Material.WHEAT)
+                .cost(SimonTask.Cost.EXPENSIVE));
 
         // Mining Tasks
-        availableTasks.add(new SimonTask("Deep Diver",
+        builtinTasks.add(new SimonTask("Deep Diver",
                 player -> player.getLocation().getY() < 0 &&
                         player.getLocation().getBlock().getLightLevel() == 0,
-                "Reach bedrock level in complete darkness"));
-
-        // Survival Tasks
-        availableTasks.add(new SimonTask("Fire Walker",
-                player -> {
-                    Location loc = player.getLocation();
-                    return loc.getBlock().getType() == Material.MAGMA_BLOCK &&
-                            !player.hasPotionEffect(PotionEffectType.FIRE_RESISTANCE);
-                },
-                "Walk on magma blocks without fire resistance"));
-
-        // Enchanting Tasks
-        availableTasks.add(new SimonTask("Enchantment Master",
-                player -> {
-                    ItemStack item = player.getInventory().getItemInMainHand();
-                    return item != null && item.getEnchantments().size() >= 5;
-                },
-                "Hold an item with 5 or more enchantments"));
-
-        // Brewing Tasks
-        availableTasks.add(new SimonTask("Potion Mixer",
-                player -> {
-                    return player.getActivePotionEffects().size() >= 3;
-                },
-                "Have 3 potion effects active simultaneously"));
+                "Reach bedrock level in complete darkness")
+                .cost(SimonTask.Cost.MODERATE)
+                .requiresEnvironment(World.Environment.NORMAL));
 
         // Transportation Tasks
-        availableTasks.add(new SimonTask("Elytra Expert",
+        builtinTasks.add(new SimonTask("Elytra Expert",
                 player -> {
+                    // Nose down past 45 degrees and really picking up speed over the last second
+                    int slot = slotOf(player);
+                    long now = clock.getTick();
                     return player.isGliding() &&
-                            player.getVelocity().length() > 1.5 &&
-                            player.getLocation().getPitch() < -45;
+                            motion().latestPitch(slot) > 45 &&
+                            motion().peakSpeed(slot, now, 20) > 1.5 &&
+                            motion().verticalDrop(slot, now, 20) >= 5;
                 },
-                "Perform a steep dive while gliding with elytra"));
-
-        // Combat Tricks
-        availableTasks.add(new SimonTask("Shield Master",
-                player -> {
-                    return player.isBlocking() &&
-                            player.getLocation().getPitch() < -60 &&
-                            player.isSneaking();
-                },
-                "Block while looking up and sneaking"));
-
-        // Resource Collection
-        availableTasks.add(new SimonTask("Resource Gatherer",
-                player -> {
-                    Inventory inv = player.getInventory();
-                    return inv.contains(Material.OAK_LOG, 16) &&
-                            inv.contains(Material.COBBLESTONE, 16) &&
-                            inv.contains(Material.IRON_ORE, 4);
-                },
-                "Collect 16 logs, 16 cobblestone, and 4 iron ore"));
+                "Perform a steep dive while gliding with elytra")
+                .difficulty(SimonTask.Difficulty.HARD));
 
         // Navigation Tasks
-        availableTasks.add(new SimonTask("Explorer",
-                player -> {
-                    Location loc = player.getLocation();
-                    return Math.abs(loc.getX()) > 1000 || Math.abs(loc.getZ()) > 1000;
-                },
-                "Travel 1000 blocks from spawn in any direction"));
-
-        // Food Tasks
-        availableTasks.add(new SimonTask("Gourmet Chef",
-                player -> {
-                    return player.getFoodLevel() == 20 &&
-                            player.getSaturation() > 15;
-                },
-                "Achieve full hunger and saturation bars"));
+        builtinTasks.add(SimonTask.fromSnapshot("Explorer",
+                snapshot -> Math.abs(snapshot.getX()) > 1000 || Math.abs(snapshot.getZ()) > 1000,
+                "Travel 1000 blocks from spawn in any direction")
+                .requiresZoneRadius(1000)
+                .difficulty(SimonTask.Difficulty.HARD));
 
         // Advanced Building
-        availableTasks.add(new SimonTask("Scaffold Builder",
+        builtinTasks.add(new SimonTask("Scaffold Builder",
                 player -> {
                     Location loc = player.getLocation();
                     return loc.getY() > player.getWorld().getHighestBlockYAt(loc) + 20 &&
                             loc.getBlock().getRelative(BlockFace.DOWN).getType().isSolid();
                 },
-                "Build and stand on a pillar 20 blocks above the highest point"));
-
-        // Weather Challenges
-        availableTasks.add(new SimonTask("Storm Chaser",
-                player -> {
-                    Location loc = player.getLocation();
-                    return loc.getWorld().hasStorm() &&
-                            loc.getBlock().getLightFromSky() == 15 &&
-                            player.getInventory().getHelmet() == null;
-                },
-                "Stand in an open area during a thunderstorm without armor"));
+                "Build and stand on a pillar 20 blocks above the highest point")
+                .cost(SimonTask.Cost.MODERATE));
 
         // Technical Tasks
-        availableTasks.add(new SimonTask("Wireless Engineer",
+        builtinTasks.add(new SimonTask("Wireless Engineer",
                 player -> {
                     Location loc = player.getLocation();
                     return loc.getBlock().getType() == Material.OBSERVER &&
                             loc.getBlock().getRelative(BlockFace.UP).getType() == Material.REDSTONE_LAMP &&
                             loc.getBlock().getRelative(BlockFace.UP).isBlockPowered();
                 },
-                "Create a wireless redstone signal using observers"));
+                "Create a wireless redstone signal using observers")
+                .cost(SimonTask.Cost.MODERATE)
+                .difficulty(SimonTask.Difficulty.HARD));
 
-        availableTasks.add(new SimonTask("Sheep Rainbow",
+        builtinTasks.add(new SimonTask("Sheep Rainbow",
                 player -> {
-                    return player.getNearbyEntities(10, 3, 10).stream()
-                            .filter(e -> e instanceof Sheep)
-                            .map(e -> (Sheep) e)
-                            .map(Sheep::getColor)
-                            .distinct()
-                            .count() >= 5;
+                    int colors = 0;
+                    int seen = 0; // Bit per DyeColor ordinal
+                    for (Entity entity : nearbyEntities(player, 10, 3, 10)) {
+                        DyeColor color = ((Sheep) entity).getColor();
+                        if (color != null && (seen & (1 << color.ordinal())) == 0) {
+                            seen |= 1 << color.ordinal();
+                            colors++;
+                        }
+                    }
+                    return colors >= 5;
                 },
-                "Gather 5 differently colored sheep in one area"));
+                "Gather 5 differently colored sheep in one area")
+                .watchEntities(Sheep.class)
+                .cost(SimonTask.Cost.MODERATE)
+                .difficulty(SimonTask.Difficulty.HARD));
 
         // Advanced Combat
-        availableTasks.add(new SimonTask("Trident Master",
+        builtinTasks.add(new SimonTask("Trident Master",
                 player -> {
                     return player.isGliding() &&
                             player.getInventory().getItemInMainHand().getType() == Material.TRIDENT &&
                             player.getLocation().getBlock().isLiquid();
                 },
-                "Throw a trident while gliding over water"));
+                "Throw a trident while gliding over water")
+                .onEvent(ProjectileLaunchEvent.class, (player, event) -> event.getEntity() instanceof Trident &&
+                        player.isGliding() &&
+                        player.getWorld().getHighestBlockAt(player.getLocation()).isLiquid())
+                .cost(SimonTask.Cost.MODERATE));
 
-        availableTasks.add(new SimonTask("TNT Jumper",
+        builtinTasks.add(new SimonTask("TNT Jumper",
                 player -> {
                     return !player.isOnGround() &&
-                            player.getNearbyEntities(3, 3, 3).stream()
-                                    .anyMatch(e -> e instanceof TNTPrimed);
+                            !nearbyEntities(player, 3, 3, 3).isEmpty();
                 },
-                "Jump using TNT explosion (without dying)"));
+                "Jump using TNT explosion (without dying)")
+                .watchEntities(TNTPrimed.class)
+                .cost(SimonTask.Cost.MODERATE));
 
         // Music & Sound
-        availableTasks.add(new SimonTask("Music Maker",
+        builtinTasks.add(new SimonTask("Music Maker",
                 player -> {
                     Location loc = player.getLocation();
                     return loc.getBlock().getType() == Material.NOTE_BLOCK &&
                             loc.getBlock().getBlockPower() > 0;
                 },
-                "Play a note block melody"));
+                "Play a note block melody")
+                .cost(SimonTask.Cost.MODERATE));
 
         // Advanced Building
-        availableTasks.add(new SimonTask("Pixel Artist",
+        builtinTasks.add(new SimonTask("Pixel Artist",
                 player -> {
                     Location loc = player.getLocation();
-                    Set<Material> colors = new HashSet<>();
-                    for (int x = -2; x <= 2; x++) {
-                        for (int y = 0; y <= 4; y++) {
-                            Material type = loc.clone().add(x, y, 0).getBlock().getType();
-                            if (type.name().contains("WOOL")) colors.add(type);
-                        }
-                    }
-                    return colors.size() >= 6;
+                    int x = loc.getBlockX();
+                    int y = loc.getBlockY();
+                    int z = loc.getBlockZ();
+                    return blockIndex.countDistinct(x - 2, y, z, x + 2, y + 4, z) >= 6;
                 },
-                "Create a wool pixel art using 6 different colors"));
-
-        // Ocean Tasks
-        availableTasks.add(new SimonTask("Coral Collector",
-                player -> {
-                    return Stream.of(Material.BRAIN_CORAL, Material.BUBBLE_CORAL,
-                                    Material.FIRE_CORAL, Material.HORN_CORAL,
-                                    Material.TUBE_CORAL)
-                            .allMatch(m -> player.getInventory().contains(m));
-                },
-                "Collect all 5 types of coral"));
+                "Create a wool pixel art using 6 different colors")
+                .watchBlocks(Tag.WOOL.getValues())
+                .cost(SimonTask.Cost.EXPENSIVE)
+                .difficulty(SimonTask.Difficulty.HARD));
 
         // Nether Challenges
-        availableTasks.add(new SimonTask("Strider Racer",
+        builtinTasks.add(new SimonTask("Strider Racer",
                 player -> {
                     return player.getVehicle() instanceof Strider &&
                             player.getLocation().getBlock().getType() == Material.LAVA;
                 },
-                "Ride a Strider across a lava lake"));
-
-        // End Challenges
-        availableTasks.add(new SimonTask("Dragon Breath Collector",
-                player -> {
-                    return player.getInventory().contains(Material.DRAGON_BREATH) &&
-                            player.getLocation().getWorld().getEnvironment() == World.Environment.THE_END;
-                },
-                "Collect Dragon's Breath in The End"));
-
-        // Village Tasks
-        availableTasks.add(new SimonTask("Village Hero",
-                player -> {
-                    return player.getNearbyEntities(20, 10, 20).stream()
-                            .filter(e -> e instanceof Villager)
-                            .count() >= 5 &&
-                            player.getStatistic(Statistic.RAID_WIN) > 0;
-                },
-                "Win a raid while protecting at least 5 villagers"));
+                "Ride a Strider across a lava lake")
+                .onEvent(EntityMountEvent.class, (player, event) -> event.getMount() instanceof Strider &&
+                        event.getMount().getLocation().getBlock().getType() == Material.LAVA)
+                .cost(SimonTask.Cost.MODERATE)
+                .requiresEnvironment(World.Environment.NETHER));
 
         // Redstone Engineering
-        availableTasks.add(new SimonTask("Logic Master",
+        builtinTasks.add(new SimonTask("Logic Master",
                 player -> {
                     Location loc = player.getLocation();
-                    int comparators = 0;
-                    int repeaters = 0;
-                    for (int x = -3; x <= 3; x++) {
-                        for (int z = -3; z <= 3; z++) {
-                            Block block = loc.clone().add(x, 0, z).getBlock();
-                            if (block.getType() == Material.COMPARATOR) comparators++;
-                            if (block.getType() == Material.REPEATER) repeaters++;
-                        }
-                    }
-                    return comparators >= 2 && repeaters >= 2;
+                    int x = loc.getBlockX();
+                    int y = loc.getBlockY();
+                    int z = loc.getBlockZ();
+                    return blockIndex.count(Material.COMPARATOR, x - 3, y, z - 3, x + 3, y, z + 3) >= 2 &&
+                            blockIndex.count(Material.REPEATER, x - 3, y, z - 3, x + 3, y, z + 3) >= 2;
                 },
-                "Build a working logic circuit with comparators and repeaters"));
+                "Build a working logic circuit with comparators and repeaters")
+                .watchBlocks(Material.COMPARATOR, Material.REPEATER)
+                .cost(SimonTask.Cost.EXPENSIVE)
+                .difficulty(SimonTask.Difficulty.HARD));
 
         // Farming Advanced
-        availableTasks.add(new SimonTask("Bee Keeper",
+        builtinTasks.add(new SimonTask("Bee Keeper",
                 player -> {
-                    return player.getNearbyEntities(10, 10, 10).stream()
-                            .filter(e -> e instanceof Bee)
-                            .count() >= 3 &&
-                            player.getLocation().getBlock().getType() == Material.BEEHIVE;
+                    return player.getLocation().getBlock().getType() == Material.BEEHIVE &&
+                            nearbyEntities(player, 10, 10, 10).size() >= 3;
                 },
-                "Maintain a beehive with at least 3 bees"));
+                "Maintain a beehive with at least 3 bees")
+                .watchEntities(Bee.class)
+                .cost(SimonTask.Cost.MODERATE));
 
         // Transportation Advanced
-        availableTasks.add(new SimonTask("Rail Engineer",
+        builtinTasks.add(new SimonTask("Rail Engineer",
                 player -> {
                     Location loc = player.getLocation();
-                    int railCount = 0;
-                    for (int x = -5; x <= 5; x++) {
-                        for (int z = -5; z <= 5; z++) {
-                            Block block = loc.clone().add(x, 0, z).getBlock();
-                            if (block.getType().name().contains("RAIL")) railCount++;
-                        }
-                    }
-                    return railCount >= 10 &&
-                            loc.getBlock().getType() == Material.POWERED_RAIL;
-                },
-                "Build a powered rail system with at least 10 tracks"));
-
-        // Potion Making
-        availableTasks.add(new SimonTask("Alchemist",
-                player -> {
-                    return player.getActivePotionEffects().stream()
-                            .filter(effect -> effect.getType().equals(PotionEffectType.INVISIBILITY))
-                            .findFirst()
-                            .map(effect -> effect.getAmplifier() >= 1)
-                            .orElse(false);
+                    int x = loc.getBlockX();
+                    int y = loc.getBlockY();
+                    int z = loc.getBlockZ();
+                    return loc.getBlock().getType() == Material.POWERED_RAIL &&
+                            blockIndex.countAll(x - 5, y, z - 5, x + 5, y, z + 5) >= 10;
                 },
-                "Create and drink an Invisibility II potion"));
+                "Build a powered rail system with at least 10 tracks")
+                .watchBlocks(Tag.RAILS.getValues())
+                .cost(SimonTask.Cost.EXPENSIVE)
+                .difficulty(SimonTask.Difficulty.HARD));
 
         // Advanced Movement
-        availableTasks.add(new SimonTask("Parkour Master",
+        builtinTasks.add(new SimonTask("Parkour Master",
                 player -> {
                     Location loc = player.getLocation();
                     return !player.isOnGround() &&
@@ -620,19 +566,11 @@ public class TaskManager {
                             player.getInventory().getBoots() != null &&
                             player.getInventory().getBoots().getEnchantments().containsKey(Enchantment.FEATHER_FALLING);
                 },
-                "Perform a high jump with Feather Falling boots"));
-
-        // Advanced Combat
-        availableTasks.add(new SimonTask("Archery Challenge",
-                player -> {
-                    return player.getStatistic(Statistic.MOB_KILLS) >
-                            player.getStatistic(Statistic.MOB_KILLS, EntityType.SKELETON) &&
-                            player.getInventory().getItemInMainHand().getType() == Material.BOW;
-                },
-                "Defeat a Skeleton using only their own arrows"));
+                "Perform a high jump with Feather Falling boots")
+                .cost(SimonTask.Cost.MODERATE));
 
         // Weather Mastery
-        availableTasks.add(new SimonTask("Lightning Hunter",
+        builtinTasks.add(new SimonTask("Lightning Hunter",
                 player -> {
                     Location loc = player.getLocation();
                     return loc.getWorld().hasStorm() &&
@@ -640,58 +578,124 @@ public class TaskManager {
                             player.getInventory().getHelmet() != null &&
                             player.getInventory().getHelmet().getEnchantments().containsKey(Enchantment.PROTECTION);
                 },
-                "Stand at the highest point during a thunderstorm with Protection armor"));
-
-        // Food and Farming
-        availableTasks.add(new SimonTask("Master Chef",
-                player -> {
-                    return player.getInventory().contains(Material.GOLDEN_CARROT) &&
-                            player.getInventory().contains(Material.GOLDEN_APPLE) &&
-                            player.getFoodLevel() == 20;
-                },
-                "Create golden food items and maintain full hunger"));
+                "Stand at the highest point during a thunderstorm with Protection armor")
+                .cost(SimonTask.Cost.MODERATE)
+                .requiresStorm());
 
         // Advanced Building
-        availableTasks.add(new SimonTask("Statue Maker",
+        builtinTasks.add(new SimonTask("Statue Maker",
                 player -> {
                     Location loc = player.getLocation();
-                    int height = 0;
-                    Material baseMaterial = loc.getBlock().getType();
+                    World world = player.getWorld();
+                    int x = loc.getBlockX();
+                    int y = loc.getBlockY();
+                    int z = loc.getBlockZ();
+                    Material baseMaterial = world.getBlockAt(x, y, z).getType();
+                    if (!baseMaterial.isSolid()) return false;
+                    int height = 1;
                     while (height < 10 &&
-                            loc.clone().add(0, height, 0).getBlock().getType() == baseMaterial) {
+                            world.getBlockAt(x, y + height, z).getType() == baseMaterial) {
                         height++;
                     }
-                    return height >= 5 && baseMaterial.isSolid();
+                    return height >= 5;
                 },
-                "Build a statue at least 5 blocks tall"));
+                "Build a statue at least 5 blocks tall")
+                .cost(SimonTask.Cost.EXPENSIVE)
+                .difficulty(SimonTask.Difficulty.HARD));
 
         // Enchanting Mastery
-        availableTasks.add(new SimonTask("Enchanted Warriors",
-                player -> {
-                    ItemStack[] armor = player.getInventory().getArmorContents();
-                    return Arrays.stream(armor)
-                            .filter(Objects::nonNull)
-                            .allMatch(item -> !item.getEnchantments().isEmpty());
+        builtinTasks.add(SimonTask.fromSnapshot("Enchanted Warriors",
+                snapshot -> {
+                    for (int i = 0; i < 4; i++) {
+                        if (snapshot.getArmor(i) != null && snapshot.getArmorEnchantments(i) == 0) return false;
+                    }
+                    return true;
                 },
-                "Wear a full set of enchanted armor"));
+                "Wear a full set of enchanted armor")
+                .cost(SimonTask.Cost.MODERATE));
 
         // Advanced Redstone
-        availableTasks.add(new SimonTask("Hidden Door",
+        builtinTasks.add(new SimonTask("Hidden Door",
                 player -> {
                     Location loc = player.getLocation();
                     return loc.getBlock().getType() == Material.PISTON &&
                             loc.getBlock().getBlockPower() > 0 &&
                             loc.clone().add(0, 1, 0).getBlock().getType().isOccluding();
                 },
-                "Create a hidden piston door"));
+                "Create a hidden piston door")
+                .cost(SimonTask.Cost.MODERATE)
+                .difficulty(SimonTask.Difficulty.HARD));
+    }
+
+    // Entities of the task's watched types around the player, from this tick's grid
+    @Override
+    public List<Entity> nearbyEntities(Player player, double rx, double ry, double rz) {
+        return entityGrid.query(player.getLocation(), rx, ry, rz, clock.getTick());
+    }
+
+    @Override
+    public int statisticDelta(Player player, StatisticTracker.Key key) {
+        return statistics.delta(slotOf(player), player, key);
+    }
+
+    /**
+     * Takes the tasks of a newly loaded catalog into the rotation. A task that is
+     * running keeps going; the swap happens when it ends.
+     */
+    public void setCatalog(TaskCatalog catalog) {
+        pendingCatalog = catalog;
+        if (currentTask == null) {
+            applyPendingCatalog();
+        }
+    }
+
+    private void applyPendingCatalog() {
+        if (pendingCatalog == null) return;
+        availableTasks.clear();
+        availableTasks.addAll(builtinTasks);
+        availableTasks.addAll(pendingCatalog.createTasks(this));
+        double[] weights = new double[availableTasks.size()];
+        for (int i = 0; i < weights.length; i++) {
+            SimonTask task = availableTasks.get(i);
+            weights[i] = TaskDeck.weightOf(task.getDifficulty().ordinal(), task.getCost().ordinal());
+        }
+        deck.setWeights(weights);
+        pendingCatalog = null;
+        recordDeck();
+    }
+
+    // The replay needs the deck's tasks and weights to redo its draws
+    private void recordDeck() {
+        ReplayLog replay = arena.getReplay();
+        if (replay == null) return;
+        String[] descriptions = new String[availableTasks.size()];
+        for (int i = 0; i < descriptions.length; i++) {
+            descriptions[i] = availableTasks.get(i).getDescription();
+        }
+        replay.deck(clock.getTick(), descriptions, deck.getWeights());
+    }
+
+    // Free for the player being checked; anyone else costs a table lookup
+    private int slotOf(Player player) {
+        if (player == checkedPlayer) return checkedSlot;
+        return arena.getSlots().slotOf(player.getUniqueId());
+    }
+
+    private void setChecked(Player player, int slot) {
+        checkedPlayer = player;
+        checkedSlot = slot;
+    }
+
+    private MotionHistory motion() {
+        return arena.getMotionHistory();
     }
 
     private String getRandomPrefix() {
-        return COMMAND_PREFIXES[new Random().nextInt(COMMAND_PREFIXES.length)];
+        return COMMAND_PREFIXES[arena.getRandom().cosmetic().nextInt(COMMAND_PREFIXES.length)];
     }
 
     private String getRandomAdjective() {
-        return TASK_ADJECTIVES[new Random().nextInt(TASK_ADJECTIVES.length)];
+        return TASK_ADJECTIVES[arena.getRandom().cosmetic().nextInt(TASK_ADJECTIVES.length)];
     }
 
     private void broadcastTaskMessage(String prefix, String task, boolean isSimonSays) {
@@ -704,93 +708,100 @@ public class TaskManager {
                 messageColor, adjective,
                 task.toLowerCase());
 
-        // Send message to all players
-        for (Player player : Bukkit.getOnlinePlayers()) {
-            // Title display
-            player.sendTitle(
-                    prefixColor + prefix + "!",
-                    messageColor + task,
-                    10, 40, 10
-            );
-
-            // Chat message
-            player.sendMessage(ChatColor.GOLD + "➤ " + message);
-
-            // Sound effect
-            if (isSimonSays) {
-                player.playSound(player.getLocation(), Sound.BLOCK_NOTE_BLOCK_CHIME, 1.0f, 1.0f);
-                player.spawnParticle(Particle.NOTE, player.getLocation().add(0, 2, 0), 5, 0.5, 0.5, 0.5, 0);
-            } else {
-                player.playSound(player.getLocation(), Sound.BLOCK_NOTE_BLOCK_BASS, 1.0f, 0.8f);
-                player.spawnParticle(Particle.LARGE_SMOKE, player.getLocation().add(0, 2, 0), 5, 0.5, 0.5, 0.5, 0);
-            }
-        }
+        // Composed once, then sent to everyone a batch of players per tick
+        Broadcaster.Announcement announcement = new Broadcaster.Announcement(
+                prefixColor + prefix + "!",
+                messageColor + task,
+                ChatColor.GOLD + "➤ " + message,
+                isSimonSays ? Sound.BLOCK_NOTE_BLOCK_CHIME : Sound.BLOCK_NOTE_BLOCK_BASS,
+                isSimonSays ? 1.0f : 0.8f,
+                isSimonSays ? Particle.NOTE : Particle.LARGE_SMOKE
+        );
+        broadcaster.announce(announcement, arena.getOnlineBySlot(), arena.getSlots().size());
     }
 
     private void createBossBar(String taskDescription, boolean isSimonSays) {
-        if (taskBar != null) {
-            taskBar.removeAll();
-        }
-
         String prefix = getRandomPrefix();
         BarColor barColor = isSimonSays ? BarColor.GREEN : BarColor.BLUE;
 
-        taskBar = Bukkit.createBossBar(
-                ChatColor.GOLD + prefix + ": " + taskDescription,
-                barColor,
-                BarStyle.SEGMENTED_20
-        );
-
-        for (Player player : Bukkit.getOnlinePlayers()) {
-            taskBar.addPlayer(player);
-        }
-        taskBar.setVisible(true);
+        // The game's bar is reused; at most one progress update per second of the task
+        taskBar.show(ChatColor.GOLD + prefix + ": " + taskDescription, barColor, 1.0 / TASK_DURATION);
 
         // Broadcast the task in chat and with visual effects
         broadcastTaskMessage(prefix, taskDescription, isSimonSays);
     }
 
     public void startTasks() {
-        Collections.shuffle(availableTasks);
+        taskBar.open(arena.getPlayers());
+        deck.reset();
+        recordDeck();
         scheduleAllTasks();
     }
 
     private void scheduleAllTasks() {
-        for (int i = 0; i < TASK_TIMINGS.length; i++) {
-            final int taskIndex = i;
-            new BukkitRunnable() {
-                @Override
-                public void run() {
-                    if (taskIndex < availableTasks.size()) {
-                        startNewTask(availableTasks.get(taskIndex));
-                    }
-                }
-            }.runTaskLater(plugin, TASK_TIMINGS[taskIndex] * 20L);
+        for (long timing : TASK_TIMINGS) {
+            clock.schedule(timing * 20L, this::drawNextTask);
         }
     }
 
-    private void startNewTask(SimonTask task) {
+    // Only tasks that can be done in the arena as it is right now are in the draw
+    private void drawNextTask() {
+        World world = arena.getGameSetup().getGameWorld();
+        if (world == null) return;
+        double zoneRadius = arena.getGameSetup().getCurrentRadius();
+        feasibleTasks.clear();
+        for (int i = 0; i < availableTasks.size(); i++) {
+            if (availableTasks.get(i).isFeasible(world, zoneRadius)) {
+                feasibleTasks.set(i);
+            }
+        }
+        int index = deck.draw(feasibleTasks, arena.getRandom().deck());
+        if (index >= 0) {
+            startNewTask(index);
+        }
+    }
+
+    private void startNewTask(int index) {
+        SimonTask task = availableTasks.get(index);
         currentTask = task;
-        playerProgress.clear();
+        taskRound++;
+        progress.reset(arena.getSlots().size(), clock.getTick());
 
         // 60% chance of being a real Simon Says command
-        isSimonSaysTask = new Random().nextDouble() < 0.6;
+        isSimonSaysTask = arena.getRandom().nextSimonSays();
 
         // 30% chance of adding a contradictory command
-        hasContradictoryCommand = new Random().nextDouble() < 0.3;
+        hasContradictoryCommand = arena.getRandom().nextContradictory();
 
+        int contradictoryIndex = -1;
         if (hasContradictoryCommand) {
             // Select a different task as the contradictory one
-            List<SimonTask> otherTasks = new ArrayList<>(availableTasks);
-            otherTasks.remove(task);
-            contradictoryTask = otherTasks.get(new Random().nextInt(otherTasks.size()));
+            contradictoryIndex = deck.drawOther(arena.getRandom().deck());
+            contradictoryTask = contradictoryIndex < 0 ? null : availableTasks.get(contradictoryIndex);
+            hasContradictoryCommand = contradictoryTask != null;
         }
+        arena.getReplay().task(clock.getTick(), index, feasibleTasks, task.getDescription(), isSimonSaysTask,
+                contradictoryIndex, hasContradictoryCommand ? contradictoryTask.getDescription() : null);
 
         createBossBar(task.getDescription(), isSimonSaysTask);
 
-        // Initialize progress tracking for all players
-        for (Player player : Bukkit.getOnlinePlayers()) {
-            playerProgress.put(player.getUniqueId(), new TaskProgress());
+        // Only players online now take part in this task
+        Player[] online = arena.getOnlineBySlot();
+        for (int slot = 0; slot < arena.getSlots().size(); slot++) {
+            if (online[slot] != null) {
+                progress.enroll(slot);
+            }
+        }
+
+        entityGrid.watch(arena.getGameSetup().getGameWorld(), task.getWatchedEntities());
+        statistics.baseline(arena.getPlayers(), task.getTrackedStatistics());
+
+        // Start indexing the task's blocks around everyone before the first check
+        blockIndex.watch(arena.getGameSetup().getGameWorld(), task.getWatchedBlocks());
+        if (blockIndex.isWatching()) {
+            for (Player player : arena.getPlayers()) {
+                blockIndex.prime(player.getLocation());
+            }
         }
 
         startTaskTimer();
@@ -800,62 +811,225 @@ public class TaskManager {
         if (taskTimer != null) {
             taskTimer.cancel();
         }
+        if (evaluatorJob != null) {
+            evaluatorJob.cancel();
+        }
+        evaluator.reset();
+        lastSliceTick = -1;
+
+        // Picks up whatever part of the current check pass didn't fit in earlier ticks
+        evaluatorJob = clock.scheduleRepeating(1L, 1L, this::onTick);
+
+        long firstSecond = arena.getStaggerDelay(20L);
+        taskEndTick = clock.getTick() + firstSecond + TASK_DURATION * 20L;
 
-        taskTimer = new BukkitRunnable() {
-            private int timeLeft = (int) TASK_DURATION;
+        taskTimer = clock.scheduleRepeating(firstSecond, 20L, new Runnable() {
             private boolean contradictoryCommandIssued = false;
 
             @Override
             public void run() {
+                // Seconds left by the clock; after lag the timer skips runs, so counting them would fall behind
+                long ticksLeft = taskEndTick - clock.getTick();
+                int timeLeft = (int) ((ticksLeft + 19) / 20);
                 if (timeLeft <= 0) {
                     endCurrentTask();
-                    cancel();
+                    taskTimer.cancel();
                     return;
                 }
 
                 // Issue contradictory command halfway through
-                if (hasContradictoryCommand && !contradictoryCommandIssued && timeLeft == TASK_DURATION/2) {
+                if (hasContradictoryCommand && !contradictoryCommandIssued && timeLeft <= TASK_DURATION/2) {
                     contradictoryCommandIssued = true;
                     String prefix = isSimonSaysTask ? "Simon says" : getRandomPrefix();
                     broadcastTaskMessage(prefix, contradictoryTask.getDescription(), !isSimonSaysTask);
                 }
 
-                double progress = (double) timeLeft / TASK_DURATION;
-                taskBar.setProgress(progress);
-
                 if (timeLeft <= 5) {
                     taskBar.setColor(BarColor.RED);
-                    for (Player player : Bukkit.getOnlinePlayers()) {
+                    for (Player player : arena.getPlayers()) {
                         player.playSound(player.getLocation(), Sound.UI_BUTTON_CLICK, 0.5f, 1.0f);
                     }
                 }
 
-                checkTaskCompletion();
-                timeLeft--;
+                beginCompletionPass();
             }
-        };
+        });
+    }
+
+    private void beginCompletionPass() {
+        // Purely event-driven tasks are judged when the event arrives or the round ends
+        if (currentTask == null || !currentTask.isPolled()) return;
+
+        if (currentTask.isSnapshotEvaluated() && arena.getGameSetup().getConfig().isParallelTaskEvaluation()) {
+            beginParallelPass();
+            return;
+        }
+        evaluator.beginPass(arena.getOnlineBySlot(), arena.getSlots().size());
+        runCompletionSlice();
+    }
+
+    /**
+     * Captures a snapshot of every unjudged player on the main thread, checks them
+     * on the plugin's evaluation pool and applies the verdicts back on the main
+     * thread.
+     */
+    private void beginParallelPass() {
+        // Still waiting on the last pass; one second of checks is skipped rather than queued
+        if (parallelPassRunning) return;
+
+        SimonTask task = currentTask;
+        int round = taskRound;
+        List<PlayerSnapshot> snapshots = new ArrayList<>();
+        Map<Long, ChunkSnapshot> chunks = new HashMap<>();
+        Player[] online = arena.getOnlineBySlot();
+        for (int slot = 0; slot < arena.getSlots().size(); slot++) {
+            Player player = online[slot];
+            if (player == null || !progress.isEnrolled(slot) || progress.isJudged(slot)) continue;
+
+            ChunkSnapshot chunk = null;
+            if (task.isChunkNeeded()) {
+                Location loc = player.getLocation();
+                int chunkX = loc.getBlockX() >> 4;
+                int chunkZ = loc.getBlockZ() >> 4;
+                long key = ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+                chunk = chunks.computeIfAbsent(key,
+                        k -> player.getWorld().getChunkAt(chunkX, chunkZ).getChunkSnapshot(false, false, false));
+            }
+            snapshots.add(PlayerSnapshot.capture(player, slot, chunk));
+        }
+        if (snapshots.isEmpty()) return;
+
+        parallelPassRunning = true;
+        plugin.getEvaluationPool().execute(() -> {
+            boolean[] verdicts = new boolean[snapshots.size()];
+            Throwable failure = null;
+            try {
+                IntStream.range(0, verdicts.length).parallel()
+                        .forEach(i -> verdicts[i] = task.checkSnapshot(snapshots.get(i)));
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+
+            Throwable error = failure;
+            if (!plugin.isEnabled()) return;
+            Bukkit.getScheduler().runTask(plugin, () -> {
+                parallelPassRunning = false;
+                if (error != null) {
+                    plugin.getLogger().log(Level.WARNING, "Task check failed for " + task.getDescription(), error);
+                    return;
+                }
+                applyVerdicts(round, snapshots, verdicts);
+            });
+        });
+    }
+
+    private void applyVerdicts(int round, List<PlayerSnapshot> snapshots, boolean[] verdicts) {
+        if (round != taskRound || currentTask == null) return;
+
+        Player[] online = arena.getOnlineBySlot();
+        for (int i = 0; i < verdicts.length; i++) {
+            int slot = snapshots.get(i).getSlot();
+            Player player = online[slot];
+            if (player == null || !progress.isEnrolled(slot) || progress.isJudged(slot)) continue;
+
+            boolean result = progress.isTriggered(slot) || verdicts[i];
+            progress.setLastResult(slot, result);
+            judgePlayer(player, slot, result);
+        }
+    }
+
+    private void onTick() {
+        // Follows the countdown by the tick; the bar itself only sends whole steps
+        taskBar.setProgress((double) (taskEndTick - clock.getTick()) / (TASK_DURATION * 20L));
+        blockIndex.tick();
+        runCompletionSlice();
+    }
+
+    // Cheap tasks check everyone at once; the rest only get the configured time per tick
+    private void runCompletionSlice() {
+        if (currentTask == null || evaluator.isPassComplete() || lastSliceTick == clock.getTick()) return;
+        lastSliceTick = clock.getTick();
+
+        long budgetNanos = currentTask.getCost() == SimonTask.Cost.CHEAP
+                ? Long.MAX_VALUE
+                : arena.getGameSetup().getConfig().getTaskBudgetMicros() * 1000L;
+        evaluator.run(budgetNanos, playerCheck);
+    }
 
-        taskTimer.runTaskTimer(plugin, 0L, 20L);
+    private void checkPlayer(Player player, int slot) {
+        if (!progress.isEnrolled(slot) || progress.isJudged(slot)) return;
+
+        boolean result;
+        setChecked(player, slot);
+        try {
+            result = progress.isTriggered(slot) || currentTask.isCompleted(player);
+        } finally {
+            setChecked(null, -1);
+        }
+        progress.setLastResult(slot, result);
+        judgePlayer(player, slot, result);
     }
 
-    private void checkTaskCompletion() {
+    private void judgePlayer(Player player, int slot, boolean hasCompletedTask) {
+        if ((hasCompletedTask && !isSimonSaysTask) || (!hasCompletedTask && isSimonSaysTask)) {
+            failPlayer(player, slot);
+            progress.judge(slot, true);
+        } else if (hasCompletedTask && isSimonSaysTask) {
+            progress.judge(slot, false);
+            playSuccessEffect(player);
+        }
+    }
+
+    /**
+     * Counts an event from TaskListener towards the current task, or moves the
+     * player along its sequence, and judges them as soon as they are done.
+     */
+    public void handleEvent(Player player, Event event) {
         if (currentTask == null) return;
+        handleEvent(player, arena.getSlots().slotOf(player.getUniqueId()), event);
+    }
 
-        for (Player player : Bukkit.getOnlinePlayers()) {
-            UUID playerId = player.getUniqueId();
-            TaskProgress progress = playerProgress.get(playerId);
+    // For callers that already looked up the player's slot
+    public void handleEvent(Player player, int slot, Event event) {
+        if (currentTask == null || !progress.isEnrolled(slot) || progress.isTriggered(slot)) return;
+        if (currentTask.getSequence() != null) {
+            advanceSequence(player, slot, event);
+        }
+        if (!currentTask.isEventDriven() || progress.isTriggered(slot)) return;
+
+        boolean matches;
+        setChecked(player, slot);
+        try {
+            matches = currentTask.matches(player, event);
+        } finally {
+            setChecked(null, -1);
+        }
+        if (!matches) return;
+
+        if (progress.addEvent(slot) >= currentTask.getRequiredEvents()) {
+            trigger(player, slot);
+        }
+    }
 
-            if (!progress.completed) {
-                boolean hasCompletedTask = currentTask.isCompleted(player);
+    private void advanceSequence(Player player, int slot, Event event) {
 
-                if ((hasCompletedTask && !isSimonSaysTask) || (!hasCompletedTask && isSimonSaysTask)) {
-                    failPlayer(player);
-                    progress.completed = true;
-                } else if (hasCompletedTask && isSimonSaysTask) {
-                    progress.completed = true;
-                    playSuccessEffect(player);
-                }
-            }
+        TaskSequence sequence = currentTask.getSequence();
+        long now = clock.getTick();
+        int current = progress.getStep(slot);
+        int step = sequence.advance(current, now - progress.getStepTick(slot), TaskSequence.flagsOf(player, event));
+        if (step != current) {
+            progress.setStep(slot, step, now);
+        }
+        if (sequence.isComplete(step)) {
+            trigger(player, slot);
+        }
+    }
+
+    // The player did what the task asked through events
+    private void trigger(Player player, int slot) {
+        progress.trigger(slot);
+        if (!progress.isJudged(slot)) {
+            judgePlayer(player, slot, true);
         }
     }
 
@@ -872,7 +1046,7 @@ public class TaskManager {
         );
 
         // Give small rewards for successful completion
-        if (new Random().nextDouble() < 0.3) { // 30% chance
+        if (arena.getRandom().cosmetic().nextDouble() < 0.3) { // 30% chance
             player.addPotionEffect(new PotionEffect(PotionEffectType.SPEED, 400, 0)); // 1-minute speed boost
         }
     }
@@ -895,8 +1069,8 @@ public class TaskManager {
         player.sendMessage(ChatColor.RED + "✗ " + ChatColor.GRAY + "You failed because: " + failMessage);
     }
 
-    private void failPlayer(Player player) {
-        // Enhanced punishment system
+    private void failPlayer(Player player, int slot) {
+        // Enhanced punishment system; the order of effects is part of the replay format
         int duration = 600; // 5 minutes
         PotionEffectType[] effects = {
                 PotionEffectType.WEAKNESS,
@@ -907,13 +1081,12 @@ public class TaskManager {
         };
 
         // Apply 1-3 random effects
-        int numEffects = new Random().nextInt(3) + 1;
-        Set<PotionEffectType> chosenEffects = new HashSet<>();
-        while (chosenEffects.size() < numEffects) {
-            chosenEffects.add(effects[new Random().nextInt(effects.length)]);
-        }
+        int chosenEffects = arena.getRandom().nextPunishment();
+        arena.getReplay().punishment(clock.getTick(), slot, chosenEffects);
 
-        for (PotionEffectType effect : chosenEffects) {
+        for (int i = 0; i < effects.length; i++) {
+            if ((chosenEffects & (1 << i)) == 0) continue;
+            PotionEffectType effect = effects[i];
             PotionEffect current = player.getPotionEffect(effect);
             int newAmplifier = (current != null) ? Math.min(current.getAmplifier() + 1, 3) : 0;
             player.addPotionEffect(new PotionEffect(effect, duration, newAmplifier));
@@ -925,54 +1098,76 @@ public class TaskManager {
     private void endCurrentTask() {
         if (currentTask == null) return;
 
-        for (Player player : Bukkit.getOnlinePlayers()) {
-            UUID playerId = player.getUniqueId();
-            TaskProgress progress = playerProgress.get(playerId);
+        Player[] online = arena.getOnlineBySlot();
+        for (int slot = 0; slot < arena.getSlots().size(); slot++) {
+            Player player = online[slot];
+            // Players judged during the round keep their verdict
+            if (player == null || progress.isJudged(slot)) continue;
 
-            // Check if the player completed the task correctly
-            boolean hasCompletedTask = currentTask.isCompleted(player);
+            // Re-running every predicate here would put a whole pass in one tick, so the
+            // verdict comes from events and the last polled check instead
+            boolean hasCompletedTask = progress.isTriggered(slot) || progress.getLastResult(slot);
 
             // If the task was a Simon Says task and the player completed it correctly
             if (hasCompletedTask && isSimonSaysTask) {
-                progress.completed = true;
+                progress.judge(slot, false);
                 playSuccessEffect(player); // Play success effects and provide rewards
             }
             // If the task was not a Simon Says task and the player completed it
             else if (!hasCompletedTask && !isSimonSaysTask) {
-                progress.completed = true;
+                progress.judge(slot, false);
                 playSuccessEffect(player); // Success, as the player should not complete the task
             } else {
                 // The player failed, play fail effects and handle punishment
-                failPlayer(player);
+                progress.judge(slot, true);
+                failPlayer(player, slot);
             }
         }
 
         // Announce task end
-        for (Player player : Bukkit.getOnlinePlayers()) {
+        for (Player player : arena.getPlayers()) {
             player.sendMessage(ChatColor.GOLD + "➤ " + ChatColor.GRAY + "Time's up! Next task coming soon...");
             player.playSound(player.getLocation(), Sound.BLOCK_NOTE_BLOCK_PLING, 0.5f, 0.5f);
         }
 
-        playerProgress.clear();
-
-        if (taskBar != null) {
-            taskBar.removeAll();
-            taskBar = null;
+        if (evaluatorJob != null) {
+            evaluatorJob.cancel();
+            evaluatorJob = null;
         }
+        evaluator.reset();
+        blockIndex.clear();
+        entityGrid.clear();
+        statistics.clear();
+
+        taskBar.hide();
         currentTask = null;
         contradictoryTask = null;
         hasContradictoryCommand = false;
+        applyPendingCatalog();
+    }
+
+    public BlockIndex getBlockIndex() {
+        return blockIndex;
     }
 
     public void cleanup() {
         if (taskTimer != null) {
             taskTimer.cancel();
         }
-        if (taskBar != null) {
-            taskBar.removeAll();
-            taskBar = null;
-        }
+        // Cancels the remaining scheduled tasks too, so they can't fire into the next game
+        clock.stop();
+        broadcaster.clear();
+        evaluatorJob = null;
+        evaluator.reset();
+        blockIndex.clear();
+        entityGrid.clear();
+        statistics.clear();
+        taskBar.close();
         currentTask = null;
-        playerProgress.clear();
+        applyPendingCatalog();
+    }
+
+    public TaskBar getTaskBar() {
+        return taskBar;
     }
 }
\ No newline at end of file
@@ -0,0 +1,105 @@
+package com.wonkyfingers.simon;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.Event;
+import org.bukkit.event.player.PlayerToggleSneakEvent;
+import org.bukkit.event.player.PlayerToggleSprintEvent;
+
+import java.util.Arrays;
+
+/**
+ * The steps of a "do this, then that" task, compiled into flag masks once when
+ * the task is built. A player's progress is just the index of the next step,
+ * so checking a sequence is a mask test no matter how long it is.
+ */
+public final class TaskSequence {
+    // Player state flags a step can require
+    public static final int AIRBORNE = 1;
+    public static final int SNEAKING = 2;
+    public static final int SPRINTING = 4;
+    public static final int SWIMMING = 8;
+    public static final int GLIDING = 16;
+
+    private final int[] required; // Flags each step needs, all of them at once
+    private final int[] timeouts; // Ticks allowed since the previous step, 0 for no limit
+
+    private TaskSequence(Builder builder) {
+        this.required = Arrays.copyOf(builder.required, builder.length);
+        this.timeouts = Arrays.copyOf(builder.timeouts, builder.length);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int length() {
+        return required.length;
+    }
+
+    public boolean isComplete(int step) {
+        return step >= required.length;
+    }
+
+    /**
+     * The step a player is on after showing the given state. At most one step is
+     * taken per observation, so a single moment can't satisfy two steps; taking
+     * too long since the last step starts the sequence over.
+     *
+     * @param ticksSinceStep ticks since the player reached their current step
+     */
+    public int advance(int step, long ticksSinceStep, int flags) {
+        if (step >= required.length) return step;
+        if (step > 0 && timeouts[step] > 0 && ticksSinceStep > timeouts[step]) {
+            step = 0;
+        }
+        return (flags & required[step]) == required[step] ? step + 1 : step;
+    }
+
+    // The player's current state flags
+    public static int flagsOf(Player player) {
+        int flags = 0;
+        if (!player.isOnGround()) flags |= AIRBORNE;
+        if (player.isSneaking()) flags |= SNEAKING;
+        if (player.isSprinting()) flags |= SPRINTING;
+        if (player.isSwimming()) flags |= SWIMMING;
+        if (player.isGliding()) flags |= GLIDING;
+        return flags;
+    }
+
+    // Toggle events fire before the player's state changes, so take the new state from the event
+    public static int flagsOf(Player player, Event event) {
+        int flags = flagsOf(player);
+        if (event instanceof PlayerToggleSneakEvent) {
+            flags = ((PlayerToggleSneakEvent) event).isSneaking() ? flags | SNEAKING : flags & ~SNEAKING;
+        } else if (event instanceof PlayerToggleSprintEvent) {
+            flags = ((PlayerToggleSprintEvent) event).isSprinting() ? flags | SPRINTING : flags & ~SPRINTING;
+        }
+        return flags;
+    }
+
+    public static class Builder {
+        private int[] required = new int[4];
+        private int[] timeouts = new int[4];
+        private int length;
+
+        public Builder then(int flags) {
+            return then(flags, 0);
+        }
+
+        // A step that has to follow the previous one within the given number of ticks
+        public Builder then(int flags, int withinTicks) {
+            if (length == required.length) {
+                required = Arrays.copyOf(required, length * 2);
+                timeouts = Arrays.copyOf(timeouts, length * 2);
+            }
+            required[length] = flags;
+            timeouts[length] = withinTicks;
+            length++;
+            return this;
+        }
+
+        public TaskSequence build() {
+            return new TaskSequence(this);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.wonkyfingers.simon;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Zone containment check over flat arrays of player coordinates. Positions are
+ * copied out once per check and compared against the squared radius, so the
+ * inner loop has no square roots, branches or allocations.
+ */
+public class ZoneKernel {
+    private Player[] players = new Player[16];
+    private double[] xs = new double[16];
+    private double[] zs = new double[16];
+    private double[] distancesSquared = new double[16];
+    private byte[] outside = new byte[16];
+    private int[] flagged = new int[16];
+    private int count;
+    private int flaggedCount;
+    private double limit;
+
+    // Reused for every Player.getLocation(Location) copy
+    private final Location scratch = new Location(null, 0, 0, 0);
+
+    public void load(List<Player> source) {
+        count = source.size();
+        if (players.length < count) {
+            int capacity = Math.max(count, players.length * 2);
+            players = new Player[capacity];
+            xs = new double[capacity];
+            zs = new double[capacity];
+            distancesSquared = new double[capacity];
+            outside = new byte[capacity];
+            flagged = new int[capacity];
+        }
+
+        for (int i = 0; i < count; i++) {
+            Player player = source.get(i);
+            player.getLocation(scratch);
+            players[i] = player;
+            xs[i] = scratch.getX();
+            zs[i] = scratch.getZ();
+        }
+    }
+
+    /**
+     * Flags every loaded player further than radius + 0.5 blocks from the center.
+     *
+     * @return how many players were flagged
+     */
+    public int evaluate(double centerX, double centerZ, double radius) {
+        limit = radius + 0.5;
+        double limitSquared = limit * limit;
+
+        // Straight-line loop over primitives, which C2 can unroll and vectorize
+        for (int i = 0; i < count; i++) {
+            double dx = xs[i] - centerX;
+            double dz = zs[i] - centerZ;
+            double distanceSquared = dx * dx + dz * dz;
+            distancesSquared[i] = distanceSquared;
+            outside[i] = (byte) (distanceSquared > limitSquared ? 1 : 0);
+        }
+
+        // Players standing on the exact center block are never damaged
+        double centerBlockX = Math.floor(centerX);
+        double centerBlockZ = Math.floor(centerZ);
+        flaggedCount = 0;
+        for (int i = 0; i < count; i++) {
+            if (outside[i] != 0
+                    && (Math.floor(xs[i]) != centerBlockX || Math.floor(zs[i]) != centerBlockZ)) {
+                flagged[flaggedCount++] = i;
+            }
+        }
+        return flaggedCount;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public Player getPlayer(int index) {
+        return players[index];
+    }
+
+    // Blocks between the player and the damage line from the last evaluate, negative if outside
+    public double getMargin(int index) {
+        return limit - Math.sqrt(distancesSquared[index]);
+    }
+
+    public Player getFlagged(int index) {
+        return players[flagged[index]];
+    }
+
+    // Drop player references so a finished check doesn't keep them alive
+    public void release() {
+        Arrays.fill(players, 0, count, null);
+        count = 0;
+    }
+}
@@ -0,0 +1,61 @@
+package com.wonkyfingers.simon;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.entity.EntityToggleGlideEvent;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerRespawnEvent;
+import org.bukkit.event.player.PlayerRiptideEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
+
+public class ZoneListener implements Listener {
+    private final ArenaManager arenaManager;
+
+    public ZoneListener(ArenaManager arenaManager) {
+        this.arenaManager = arenaManager;
+    }
+
+    private void invalidate(Player player) {
+        Arena arena = arenaManager.getArena(player);
+        if (arena != null) {
+            arena.getGameSetup().invalidateDamageCheck(player);
+        }
+    }
+
+    // Any jump in position makes the damage schedule's margin estimate useless
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerTeleport(PlayerTeleportEvent event) {
+        invalidate(event.getPlayer());
+    }
+
+    // Gliding and riptide launches are the fastest ways to cover ground, so reschedule from here
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onToggleGlide(EntityToggleGlideEvent event) {
+        if (event.isGliding() && event.getEntity() instanceof Player) {
+            invalidate((Player) event.getEntity());
+        }
+    }
+
+    @EventHandler
+    public void onPlayerRiptide(PlayerRiptideEvent event) {
+        invalidate(event.getPlayer());
+    }
+
+    @EventHandler
+    public void onPlayerRespawn(PlayerRespawnEvent event) {
+        invalidate(event.getPlayer());
+    }
+
+    @EventHandler
+    public void onPlayerChangedWorld(PlayerChangedWorldEvent event) {
+        invalidate(event.getPlayer());
+    }
+
+    @EventHandler
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        invalidate(event.getPlayer());
+    }
+}
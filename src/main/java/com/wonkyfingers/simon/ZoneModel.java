@@ -0,0 +1,91 @@
+package com.wonkyfingers.simon;
+
+/**
+ * The zone as a pure function of elapsed game time. Each phase waits, then shrinks
+ * linearly to the next size; everything else (radius, phase, shrink speed) is
+ * derived from the phase tables, so any moment past or future can be queried.
+ */
+public class ZoneModel {
+    private final int phaseCount;
+    private final double[] shrinkStart; // Seconds since game start
+    private final double[] shrinkEnd;
+    private final double[] radii;       // Radius at the start of each phase, plus the final one
+
+    public ZoneModel(double initialRadius, int[] waitTimes, int[] shrinkTimes, double[] sizes) {
+        this.phaseCount = waitTimes.length;
+        this.shrinkStart = new double[phaseCount];
+        this.shrinkEnd = new double[phaseCount];
+        this.radii = new double[phaseCount + 1];
+
+        double time = 0;
+        for (int i = 0; i < phaseCount; i++) {
+            time += waitTimes[i];
+            shrinkStart[i] = time;
+            time += shrinkTimes[i];
+            shrinkEnd[i] = time;
+        }
+        for (int i = 0; i <= phaseCount; i++) {
+            radii[i] = initialRadius * sizes[i];
+        }
+    }
+
+    /**
+     * @return the phase running at the given time, or the phase count once the final zone is reached
+     */
+    public int phaseAt(double seconds) {
+        for (int i = 0; i < phaseCount; i++) {
+            if (seconds < shrinkEnd[i]) {
+                return i;
+            }
+        }
+        return phaseCount;
+    }
+
+    public double radiusAt(double seconds) {
+        int phase = phaseAt(seconds);
+        if (phase >= phaseCount) {
+            return radii[phaseCount];
+        }
+        if (seconds <= shrinkStart[phase]) {
+            return radii[phase];
+        }
+        double progress = (seconds - shrinkStart[phase]) / (shrinkEnd[phase] - shrinkStart[phase]);
+        return radii[phase] + (radii[phase + 1] - radii[phase]) * progress;
+    }
+
+    public boolean isShrinkingAt(double seconds) {
+        int phase = phaseAt(seconds);
+        return phase < phaseCount && seconds >= shrinkStart[phase];
+    }
+
+    /**
+     * Inward speed of the given phase's shrink, in blocks per second, whether or not it has started yet.
+     */
+    public double getShrinkSpeed(int phase) {
+        if (phase >= phaseCount) {
+            return 0;
+        }
+        return (radii[phase] - radii[phase + 1]) / (shrinkEnd[phase] - shrinkStart[phase]);
+    }
+
+    public double getShrinkStart(int phase) {
+        return shrinkStart[phase];
+    }
+
+    public double getShrinkEnd(int phase) {
+        return shrinkEnd[phase];
+    }
+
+    // Radius the given phase shrinks down to
+    public double getTargetRadius(int phase) {
+        return radii[Math.min(phase + 1, phaseCount)];
+    }
+
+    public int getPhaseCount() {
+        return phaseCount;
+    }
+
+    public double getEndTime() {
+        return phaseCount == 0 ? 0 : shrinkEnd[phaseCount - 1];
+    }
+}